@@ -19,7 +19,9 @@ CREATE TABLE users (
     username VARCHAR(50) NOT NULL,
     hashed_password VARCHAR(255) NOT NULL,
     role VARCHAR(50) NOT NULL,
-    PRIMARY KEY (user_id)
+    PRIMARY KEY (user_id),
+    -- registration relies on this to reject a taken username
+    UNIQUE KEY ux_users_username (username)
 );
 
 CREATE TABLE profiles (
@@ -92,6 +94,15 @@ CREATE TABLE shopping_cart (
     FOREIGN KEY (product_id) REFERENCES products(product_id)
 );
 
+-- login sessions that were signed out before their tokens expired
+-- the app keeps these in memory and only reads the table at startup and on its sync
+CREATE TABLE token_revocations (
+    session_id VARCHAR(64) NOT NULL,
+    expires_at DATETIME NOT NULL,
+    PRIMARY KEY (session_id),
+    INDEX ix_token_revocations_expires_at (expires_at)
+);
+
 
 /*  INSERT Users  */
 INSERT INTO users (username, hashed_password, role) 
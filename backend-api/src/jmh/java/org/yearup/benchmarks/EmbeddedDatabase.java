@@ -0,0 +1,60 @@
+package org.yearup.benchmarks;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.ibatis.jdbc.ScriptRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.stream.Collectors;
+
+// an in-memory H2 database in MySQL mode, loaded from the same script we use to create easyshop in MySQL
+// lets the benchmarks and the load test run the real DAOs without a MySQL server
+public final class EmbeddedDatabase
+{
+    // override with -Deasyshop.sql=<path> when running from another directory
+    private static final String SCRIPT = System.getProperty("easyshop.sql", "database/create_database_easyshop.sql");
+
+    private EmbeddedDatabase()
+    {
+    }
+
+    // the JDBC url for a named in-memory database -- it lives until the JVM exits
+    public static String url(String name)
+    {
+        return "jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+    }
+
+    // creates the database, loads the script and returns a pool pointed at it
+    public static BasicDataSource create(String name) throws IOException, SQLException
+    {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setUrl(url(name));
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+
+        try (Connection connection = dataSource.getConnection())
+        {
+            ScriptRunner runner = new ScriptRunner(connection);
+            runner.setLogWriter(null);
+            runner.setStopOnError(true);
+            runner.runScript(new StringReader(script()));
+        }
+        return dataSource;
+    }
+
+    // the MySQL script without the parts H2 doesn't understand --
+    // # comments and the lines that switch, drop or create the easyshop database itself
+    private static String script() throws IOException
+    {
+        return Files.readAllLines(Path.of(SCRIPT)).stream()
+                .filter(line -> !line.startsWith("#"))
+                .filter(line -> !line.startsWith("USE "))
+                .filter(line -> !line.startsWith("DROP DATABASE"))
+                .filter(line -> !line.startsWith("CREATE DATABASE"))
+                .collect(Collectors.joining("\n"));
+    }
+}
@@ -0,0 +1,70 @@
+package org.yearup.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// latencies and errors for one endpoint of the load test
+final class EndpointStats
+{
+    private final String name;
+    // every latency in nanoseconds -- sorted once at the end for the percentiles
+    private final List<Long> latencies = new ArrayList<>();
+    private long errors = 0;
+
+    EndpointStats(String name)
+    {
+        this.name = name;
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    synchronized void record(long latencyNanos, boolean ok)
+    {
+        latencies.add(latencyNanos);
+        if (!ok)
+        {
+            errors++;
+        }
+    }
+
+    // one row of the report -- throughput is per second of measured time
+    synchronized Map<String, Object> summary(double measuredSeconds)
+    {
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sorted);
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("endpoint", name);
+        summary.put("requests", sorted.length);
+        summary.put("errors", errors);
+        summary.put("errorRate", sorted.length == 0 ? 0.0 : (double) errors / sorted.length);
+        summary.put("throughputPerSecond", sorted.length / measuredSeconds);
+        summary.put("p50Millis", millis(percentile(sorted, 0.50)));
+        summary.put("p90Millis", millis(percentile(sorted, 0.90)));
+        summary.put("p99Millis", millis(percentile(sorted, 0.99)));
+        summary.put("maxMillis", millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+        return summary;
+    }
+
+    private static long percentile(long[] sorted, double percentile)
+    {
+        if (sorted.length == 0)
+        {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+
+    private static double millis(long nanos)
+    {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
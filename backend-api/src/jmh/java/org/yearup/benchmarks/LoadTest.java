@@ -0,0 +1,337 @@
+package org.yearup.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.yearup.EasyshopApplication;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+// end to end load test -- starts the application against an in-memory copy of the easyshop database
+// and drives it over HTTP with a mix of two scenarios:
+//   browse -- categories, filtered product searches, product details
+//   shop   -- login, search, add to cart, view the cart, checkout
+// prints throughput, latency percentiles and error rates per endpoint and writes them as JSON
+//
+// mvn -Pbenchmarks -DskipTests test-compile exec:exec@load-test -Dload.users=32 -Dload.duration-seconds=120
+// extra application settings go in -Dload.app-args, e.g. -Dload.app-args=--cart.write-behind.enabled=true
+// to compare virtual threads with Tomcat's platform threads, run the same load twice on a Java 21 runtime,
+// once with -Dload.app-args=--spring.threads.virtual.enabled=true -- raise load.users well past the pool size (200 threads)
+public final class LoadTest
+{
+    private static final String DATABASE = "easyshop-load";
+    private static final String PASSWORD = "password";
+
+    private final int users = Integer.getInteger("load.users", 16);
+    private final long warmupMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.warmup-seconds", 10));
+    private final long durationMillis = TimeUnit.SECONDS.toMillis(Long.getLong("load.duration-seconds", 60));
+    private final double browseRatio = Double.parseDouble(System.getProperty("load.browse-ratio", "0.7"));
+    private final String appArgs = System.getProperty("load.app-args", "");
+    private final File resultFile = new File(System.getProperty("load.result", "target/load-test-result.json"));
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    private String baseUrl;
+    private List<Integer> productIds;
+    private List<Integer> categoryIds;
+    // requests before this are warmup and not recorded
+    private volatile long measureFromMillis;
+
+    public static void main(String[] args) throws Exception
+    {
+        new LoadTest().run();
+    }
+
+    private void run() throws Exception
+    {
+        BasicDataSource database = EmbeddedDatabase.create(DATABASE);
+        loadCatalog(database);
+
+        ConfigurableApplicationContext application = startApplication();
+        try
+        {
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+
+            // every virtual user gets its own account so carts don't collide
+            for (int i = 0; i < users; i++)
+            {
+                register("load" + i);
+            }
+
+            long start = System.currentTimeMillis();
+            measureFromMillis = start + warmupMillis;
+            long end = measureFromMillis + durationMillis;
+            System.out.printf("load test: %d users, %d s warmup, %d s measured, %.0f%% browsing%n",
+                    users, warmupMillis / 1000, durationMillis / 1000, browseRatio * 100);
+
+            ExecutorService executor = Executors.newFixedThreadPool(users);
+            List<Future<?>> virtualUsers = new ArrayList<>();
+            for (int i = 0; i < users; i++)
+            {
+                String username = "load" + i;
+                virtualUsers.add(executor.submit(() -> {
+                    runVirtualUser(username, end);
+                    return null;
+                }));
+            }
+            for (Future<?> virtualUser : virtualUsers)
+            {
+                virtualUser.get();
+            }
+            executor.shutdown();
+
+            report(durationMillis / 1000.0);
+        }
+        finally
+        {
+            application.close();
+            database.close();
+        }
+    }
+
+    // reads the ids the scenarios pick from, and gives every product enough stock to never sell out
+    private void loadCatalog(BasicDataSource database) throws Exception
+    {
+        productIds = new ArrayList<>();
+        categoryIds = new ArrayList<>();
+
+        try (Connection connection = database.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            statement.executeUpdate("UPDATE products SET stock = 1000000000");
+
+            try (ResultSet row = statement.executeQuery("SELECT product_id FROM products"))
+            {
+                while (row.next()) productIds.add(row.getInt(1));
+            }
+            try (ResultSet row = statement.executeQuery("SELECT category_id FROM categories"))
+            {
+                while (row.next()) categoryIds.add(row.getInt(1));
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext startApplication() throws Exception
+    {
+        // devtools would restart main() in a new class loader and load the script a second time
+        // it only reads this setting as a system property
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        // the test resources have their own application.properties that hides the real one on the classpath,
+        // so point Spring at the one next to the application classes
+        Path applicationClasses = Path.of(EasyshopApplication.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        // command line arguments win over application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.config.location=" + applicationClasses.resolve("application.properties").toUri(),
+                "--server.port=0",
+                "--datasource.url=" + EmbeddedDatabase.url(DATABASE),
+                "--datasource.username=sa",
+                "--datasource.password=",
+                // the Connector/J settings mean nothing to H2
+                "--datasource.connection-properties=",
+                // H2 has no row-by-row streaming mode
+                "--products.stream.fetch-size=100",
+                "--datasource.pool.max-total=" + Math.max(20, users),
+                "--logging.level.root=WARN"));
+        if (!appArgs.isBlank())
+        {
+            args.addAll(Arrays.asList(appArgs.trim().split("\\s+")));
+        }
+
+        return new SpringApplicationBuilder(LoadTestApplication.class).run(args.toArray(new String[0]));
+    }
+
+    private void runVirtualUser(String username, long endMillis) throws Exception
+    {
+        Random random = new Random();
+        String token = null;
+
+        while (System.currentTimeMillis() < endMillis)
+        {
+            if (random.nextDouble() < browseRatio)
+            {
+                browse(random);
+            }
+            else
+            {
+                // a shopper logs in once and keeps the token, like the web client does
+                if (token == null)
+                {
+                    token = login(username);
+                }
+                shop(random, token);
+            }
+        }
+    }
+
+    private void browse(Random random)
+    {
+        int categoryId = pick(random, categoryIds);
+        int productId = pick(random, productIds);
+
+        send("GET /categories", get("/categories", null));
+        send("GET /products?cat&minPrice&maxPrice", get("/products?cat=" + categoryId + "&minPrice=25&maxPrice=200", null));
+        send("GET /categories/{id}/products", get("/categories/" + categoryId + "/products", null));
+        send("GET /products/{id}", get("/products/" + productId, null));
+    }
+
+    private void shop(Random random, String token)
+    {
+        if (token == null)
+        {
+            return;
+        }
+        int categoryId = pick(random, categoryIds);
+
+        send("GET /products?cat", get("/products?cat=" + categoryId, null));
+        send("POST /cart/products/{id}", post("/cart/products/" + pick(random, productIds), "", token));
+        send("POST /cart/products/{id}", post("/cart/products/" + pick(random, productIds), "", token));
+        send("GET /cart", get("/cart", token));
+        send("POST /orders", post("/orders", "", token));
+    }
+
+    private String login(String username) throws Exception
+    {
+        String body = objectMapper.writeValueAsString(Map.of("username", username, "password", PASSWORD));
+        HttpResponse<String> response = send("POST /login", post("/login", body, null));
+        if (response == null || response.statusCode() != 200)
+        {
+            return null;
+        }
+
+        JsonNode json = objectMapper.readTree(response.body());
+        return json.path("token").asText(null);
+    }
+
+    private void register(String username) throws Exception
+    {
+        String body = objectMapper.writeValueAsString(Map.of(
+                "username", username,
+                "password", PASSWORD,
+                "confirmPassword", PASSWORD,
+                "role", "USER"));
+        HttpResponse<String> response = httpClient.send(post("/register", body, null), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400)
+        {
+            throw new IllegalStateException("Could not register " + username + ": " + response.statusCode() + " " + response.body());
+        }
+    }
+
+    // sends one request and records it under the endpoint name -- returns null if it failed to send
+    private HttpResponse<String> send(String endpoint, HttpRequest request)
+    {
+        long start = System.nanoTime();
+        HttpResponse<String> response = null;
+        try
+        {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+        catch (Exception e)
+        {
+            // counted as an error below
+        }
+        long latency = System.nanoTime() - start;
+
+        if (System.currentTimeMillis() >= measureFromMillis)
+        {
+            boolean ok = response != null && response.statusCode() < 400;
+            stats.computeIfAbsent(endpoint, EndpointStats::new).record(latency, ok);
+        }
+        return response;
+    }
+
+    private HttpRequest get(String path, String token)
+    {
+        return request(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String json, String token)
+    {
+        return request(path, token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path, String token)
+    {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+        if (token != null)
+        {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder;
+    }
+
+    private void report(double measuredSeconds) throws Exception
+    {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        stats.values().stream()
+                .sorted(Comparator.comparing(EndpointStats::getName))
+                .forEach(endpoint -> rows.add(endpoint.summary(measuredSeconds)));
+
+        System.out.printf("%n%-40s %9s %8s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map<String, Object> row : rows)
+        {
+            System.out.printf("%-40s %9d %8d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    row.get("endpoint"), row.get("requests"), row.get("errors"), row.get("throughputPerSecond"),
+                    row.get("p50Millis"), row.get("p90Millis"), row.get("p99Millis"), row.get("maxMillis"));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("users", users);
+        result.put("measuredSeconds", measuredSeconds);
+        result.put("browseRatio", browseRatio);
+        result.put("appArgs", appArgs);
+        result.put("endpoints", rows);
+
+        resultFile.getAbsoluteFile().getParentFile().mkdirs();
+        objectMapper.writeValue(resultFile, result);
+        System.out.println("\nload test result is saved to " + resultFile.getAbsolutePath());
+    }
+
+    // EasyshopApplication as it is, minus the classes that only exist on the test classpath --
+    // TestDatabaseConfig would add a second dataSource pointed at the MySQL test database
+    @Configuration
+    @EnableAutoConfiguration
+    @EnableScheduling
+    @ComponentScan(basePackageClasses = EasyshopApplication.class, excludeFilters = {
+            @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = EasyshopApplication.class),
+            @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org\\.yearup\\.configuration\\..*"),
+            @ComponentScan.Filter(type = FilterType.REGEX, pattern = "org\\.yearup\\.benchmarks\\..*")
+    })
+    static class LoadTestApplication
+    {
+    }
+
+    private static int pick(Random random, List<Integer> ids)
+    {
+        return ids.get(random.nextInt(ids.size()));
+    }
+}
@@ -0,0 +1,116 @@
+package org.yearup.data.mysql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.yearup.benchmarks.EmbeddedDatabase;
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCartItem;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// concurrent checkouts reserving stock -- every thread is its own user
+// "hot" carts all hold the same products so the stock updates contend for the same rows,
+// "spread" carts hold different products
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CheckoutBenchmark
+{
+    private static final int USERS = 64;
+    private static final int ITEMS_PER_CART = 5;
+
+    @Param({"hot", "spread"})
+    private String products;
+
+    private BasicDataSource dataSource;
+    private MySqlCheckoutDao checkoutDao;
+    private MySqlShoppingCartDao shoppingCartDao;
+    private MySqlProductDao productDao;
+    private final AtomicInteger nextUser = new AtomicInteger();
+
+    @Setup
+    public void setup() throws Exception
+    {
+        dataSource = EmbeddedDatabase.create("checkout-benchmark-" + products);
+        dataSource.setMaxTotal(USERS);
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement())
+        {
+            // enough stock that no run sells out
+            statement.executeUpdate("UPDATE products SET stock = 1000000000");
+            for (int i = 0; i < USERS; i++)
+            {
+                statement.executeUpdate("INSERT INTO users (username, hashed_password, role) VALUES ('bench" + i + "', '', 'ROLE_USER')");
+            }
+        }
+
+        checkoutDao = new MySqlCheckoutDao(dataSource, new SimpleMeterRegistry());
+        shoppingCartDao = new MySqlShoppingCartDao(dataSource);
+        productDao = new MySqlProductDao(dataSource);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        dataSource.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Customer
+    {
+        private int userId;
+        private List<ShoppingCartItem> items;
+
+        @Setup
+        public void setup(CheckoutBenchmark benchmark)
+        {
+            // the seeded users come first, the benchmark users after them
+            int index = benchmark.nextUser.getAndIncrement();
+            userId = 4 + index;
+
+            // hot: products 1-5 for everybody, spread: a different run of products per user
+            int firstProduct = "hot".equals(benchmark.products) ? 1 : 1 + (index * ITEMS_PER_CART) % 60;
+
+            items = new ArrayList<>();
+            for (int productId = firstProduct; productId < firstProduct + ITEMS_PER_CART; productId++)
+            {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(benchmark.productDao.getById(productId));
+                item.setQuantity(1);
+                items.add(item);
+            }
+        }
+    }
+
+    @Benchmark
+    public int checkout(Customer customer)
+    {
+        for (ShoppingCartItem item : customer.items)
+        {
+            shoppingCartDao.addProduct(customer.userId, item.getProductId(), item.getQuantity());
+        }
+
+        Order order = new Order();
+        order.setUserId(customer.userId);
+        order.setDate(LocalDateTime.now());
+        order.setAddress("");
+        order.setCity("");
+        order.setState("");
+        order.setZip("");
+
+        checkoutDao.checkout(order);
+        return order.getOrderId();
+    }
+}
@@ -0,0 +1,94 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.yearup.benchmarks.EmbeddedDatabase;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// product row mapping and the product queries, against the easyshop catalog loaded into H2
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDaoBenchmark
+{
+    private BasicDataSource dataSource;
+    private MySqlProductDao dao;
+
+    // one scrollable result set over the whole catalog -- mapRow is measured without the query around it
+    private Connection connection;
+    private PreparedStatement statement;
+    private ResultSet rows;
+
+    @Setup
+    public void setup() throws Exception
+    {
+        dataSource = EmbeddedDatabase.create("product-dao-benchmark");
+        dao = new MySqlProductDao(dataSource, 100);
+
+        connection = dataSource.getConnection();
+        statement = connection.prepareStatement("SELECT * FROM products", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rows = statement.executeQuery();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception
+    {
+        rows.close();
+        statement.close();
+        connection.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void mapRow_wholeCatalog(Blackhole blackhole) throws Exception
+    {
+        rows.beforeFirst();
+        while (rows.next())
+        {
+            blackhole.consume(MySqlProductDao.mapRow(rows));
+        }
+    }
+
+    @Benchmark
+    public List<Product> search_all()
+    {
+        return dao.search(null, null, null, null);
+    }
+
+    @Benchmark
+    public List<Product> search_categoryAndPrice()
+    {
+        return dao.search(1, new BigDecimal("50"), new BigDecimal("500"), null);
+    }
+
+    // a full page of every product, with and without the description column
+    @Benchmark
+    public ProductPage searchPage_all()
+    {
+        return dao.searchPage(null, null, null, null, 0, 1000);
+    }
+
+    @Benchmark
+    public ProductPage searchListingPage_all()
+    {
+        return dao.searchListingPage(null, null, null, null, 0, 1000);
+    }
+
+    @Benchmark
+    public Product getById()
+    {
+        return dao.getById(1);
+    }
+}
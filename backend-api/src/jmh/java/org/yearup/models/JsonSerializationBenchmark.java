@@ -0,0 +1,81 @@
+package org.yearup.models;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// writing the JSON the controllers send back -- one product, a page of products and carts
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark
+{
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    // same defaults as the mapper Spring Boot builds for the controllers
+    // spring boot also turns off default view inclusion, so only fields marked for a view are written
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+            .build();
+    // what ?view=list uses
+    private final ObjectWriter listViewWriter = objectMapper.writerWithView(Product.ListView.class);
+
+    private Product product;
+    private List<Product> products;
+    private ShoppingCart cart;
+
+    @Setup
+    public void setup()
+    {
+        product = product(1);
+        products = new ArrayList<>();
+        for (int i = 1; i <= size; i++)
+        {
+            products.add(product(i));
+        }
+        cart = ShoppingCartBenchmark.buildCart(size);
+    }
+
+    @Benchmark
+    public byte[] product() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] productList() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] productList_listView() throws Exception
+    {
+        return listViewWriter.writeValueAsBytes(products);
+    }
+
+    @Benchmark
+    public byte[] shoppingCart() throws Exception
+    {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+
+    private static Product product(int id)
+    {
+        return new Product(id, "Product " + id, new BigDecimal("499.99"), 1,
+                "A powerful and feature-rich smartphone for all your communication needs.",
+                "Black", 50, false, "smartphone.jpg");
+    }
+}
@@ -0,0 +1,66 @@
+package org.yearup.models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// cart totals for carts of different sizes -- run with -prof gc to see allocations per call
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShoppingCartBenchmark
+{
+    @Param({"1", "10", "100", "1000"})
+    private int items;
+
+    private ShoppingCart cart;
+    private ShoppingCartItem firstItem;
+    private int quantity = 1;
+
+    @Setup
+    public void setup()
+    {
+        cart = buildCart(items);
+        firstItem = cart.get(1);
+    }
+
+    // what every serialization of the cart and every checkout asks for
+    @Benchmark
+    public BigDecimal getTotal()
+    {
+        return cart.getTotal();
+    }
+
+    // one quantity change followed by reading the total -- the cart update path
+    @Benchmark
+    public BigDecimal changeQuantity_thenGetTotal()
+    {
+        quantity = quantity % 5 + 1;
+        firstItem.setQuantity(quantity);
+        return cart.getTotal();
+    }
+
+    // what a DAO does for every cart load
+    @Benchmark
+    public ShoppingCart build()
+    {
+        return buildCart(items);
+    }
+
+    static ShoppingCart buildCart(int items)
+    {
+        ShoppingCart cart = new ShoppingCart();
+        for (int i = 1; i <= items; i++)
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(new Product(i, "Product " + i, new BigDecimal("19.99"), 1, "", "Black", 10, false, ""));
+            item.setQuantity(i % 5 + 1);
+            cart.add(item);
+        }
+        return cart;
+    }
+}
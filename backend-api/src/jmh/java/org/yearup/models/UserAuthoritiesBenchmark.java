@@ -0,0 +1,32 @@
+package org.yearup.models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// turning the role column into authorities -- runs for every user loaded from the database
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserAuthoritiesBenchmark
+{
+    @Param({"ROLE_USER", "ROLE_ADMIN,ROLE_USER", "ADMIN,USER,MANAGER"})
+    private String roles;
+
+    @Benchmark
+    public User setAuthorities()
+    {
+        User user = new User();
+        user.setAuthorities(roles);
+        return user;
+    }
+
+    @Benchmark
+    public User newUser()
+    {
+        return new User(1, "george", "hash", roles);
+    }
+}
@@ -0,0 +1,51 @@
+package org.yearup.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+// login throughput per core -- one benchmark thread checks one password at a time,
+// the way a login does, at the costs we would consider running with
+// matches_onRequestThread is the old way, matches_viaHasher adds the hand-off to the hashing pool
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PasswordHasherBenchmark
+{
+    @Param({"8", "10", "12"})
+    private int cost;
+
+    private BCryptPasswordEncoder bcrypt;
+    private PasswordHasher hasher;
+    private String hash;
+
+    @Setup
+    public void setup()
+    {
+        bcrypt = new BCryptPasswordEncoder(cost);
+        hasher = new PasswordHasher(cost, 1, 64);
+        hash = bcrypt.encode("password");
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        hasher.shutdown();
+    }
+
+    @Benchmark
+    public boolean matches_onRequestThread()
+    {
+        return bcrypt.matches("password", hash);
+    }
+
+    @Benchmark
+    public boolean matches_viaHasher()
+    {
+        return hasher.matches("password", hash);
+    }
+}
@@ -0,0 +1,81 @@
+package org.yearup.security.jwt;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.yearup.models.User;
+import org.yearup.security.AuthenticatedUser;
+
+import javax.servlet.FilterChain;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// what every authenticated request pays in JWTFilter -- run with the gc profiler (the benchmarks profile default)
+// and compare gc.alloc.rate.norm, the bytes allocated per request
+//   cached   -- the token was verified before and comes from the TokenProvider cache
+//   uncached -- a cache of one entry and a rotating set of tokens, so the claims are parsed
+//               and the authorities built every time
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtFilterBenchmark
+{
+    private static final String SECRET = "q8iMBSth1xu3cC+YWZPd/4XyelVYi2Bo3qr4dC1ugJL+bShsS6NTviJMdgC3rwIE7pRmxQIFzWpQW1Yb5XGWcZ1vpxs5afVogHNDZhyi5gOj8FsdRZnNLJz7P3PjGMi8whO0l9vnHRAKv5ZSoBQ7bw9KNUw7yoFGXuoGUEa9HsU=";
+    private static final int TOKENS = 1024;
+
+    @Param({"cached", "uncached"})
+    public String tokenCache;
+
+    private JWTFilter filter;
+    private MockHttpServletRequest[] requests;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (request, response) -> { };
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        boolean cached = tokenCache.equals("cached");
+        TokenProvider tokenProvider = new TokenProvider(SECRET, 3600, cached ? 10_000 : 1);
+        tokenProvider.afterPropertiesSet();
+        filter = new JWTFilter(tokenProvider);
+
+        // one token per user, so no two tokens are the same
+        requests = new MockHttpServletRequest[cached ? 1 : TOKENS];
+        for (int i = 0; i < requests.length; i++)
+        {
+            List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+            AuthenticatedUser user = new AuthenticatedUser(i + 1, "user" + i, "", authorities);
+            String token = tokenProvider.createToken(new UsernamePasswordAuthenticationToken(user, "", authorities), false);
+
+            requests[i] = new MockHttpServletRequest("GET", "/cart");
+            requests[i].addHeader(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + token);
+        }
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws Exception
+    {
+        MockHttpServletRequest request = requests[next];
+        next = (next + 1) % requests.length;
+
+        filter.doFilter(request, response, chain);
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    // the row mapping MySqlUserDao does for every user it reads
+    @Benchmark
+    public User mapUser()
+    {
+        return new User(3, "george", "$2a$10$NkufUPF3V8dEPSZeo1fzHe9ScBu.LOay9S3N32M84yuUM2OJYEJ/.", "ROLE_USER");
+    }
+}
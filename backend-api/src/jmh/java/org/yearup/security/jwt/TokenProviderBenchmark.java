@@ -0,0 +1,72 @@
+package org.yearup.security.jwt;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.security.AuthenticatedUser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// the per-request token work -- authenticate answers a repeat token from its cache,
+// a token it hasn't seen yet has its signature checked and is parsed in full
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenProviderBenchmark
+{
+    private static final String SECRET = "q8iMBSth1xu3cC+YWZPd/4XyelVYi2Bo3qr4dC1ugJL+bShsS6NTviJMdgC3rwIE7pRmxQIFzWpQW1Yb5XGWcZ1vpxs5afVogHNDZhyi5gOj8FsdRZnNLJz7P3PjGMi8whO0l9vnHRAKv5ZSoBQ7bw9KNUw7yoFGXuoGUEa9HsU=";
+    // a cache miss needs a token that isn't cached -- cycle through more tokens than the uncached provider could ever hold
+    private static final int MISS_TOKENS = 1024;
+
+    private TokenProvider tokenProvider;
+    // caches nothing, so every authenticate goes through the signature check
+    private TokenProvider uncachedTokenProvider;
+    private Authentication login;
+    private String token;
+    private String[] missTokens;
+    private int next;
+
+    @Setup
+    public void setup()
+    {
+        tokenProvider = new TokenProvider(SECRET, 3600, 10_000);
+        tokenProvider.afterPropertiesSet();
+        uncachedTokenProvider = new TokenProvider(SECRET, 3600, 0);
+        uncachedTokenProvider.afterPropertiesSet();
+
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        login = new UsernamePasswordAuthenticationToken(new AuthenticatedUser(3, "george", "", authorities), "", authorities);
+        token = tokenProvider.createToken(login, false);
+
+        // every token is in a session of its own, so they are all different
+        missTokens = new String[MISS_TOKENS];
+        for (int i = 0; i < MISS_TOKENS; i++)
+        {
+            missTokens[i] = tokenProvider.createToken(login, false);
+        }
+    }
+
+    @Benchmark
+    public String createToken()
+    {
+        return tokenProvider.createToken(login, false);
+    }
+
+    @Benchmark
+    public Authentication authenticate_cached()
+    {
+        return tokenProvider.authenticate(token);
+    }
+
+    @Benchmark
+    public Authentication authenticate_miss()
+    {
+        next = (next + 1) % MISS_TOKENS;
+        return uncachedTokenProvider.authenticate(missTokens[next]);
+    }
+}
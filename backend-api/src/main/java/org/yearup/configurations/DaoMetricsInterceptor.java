@@ -0,0 +1,160 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.yearup.models.ProductPage;
+import org.yearup.models.ShoppingCart;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// times every call on one DAO and counts the rows it hands back
+//   dao.calls -- timer per method, tagged with the exception when the call failed (its count is the call counter)
+//   dao.rows  -- rows returned per call, only for methods that read
+// meters are looked up once per method and kept -- a call only records, it never builds or registers anything
+class DaoMetricsInterceptor implements MethodInterceptor
+{
+    private final MeterRegistry registry;
+    private final String dao;
+    private final Map<Method, MethodMeters> meters = new ConcurrentHashMap<>();
+
+    DaoMetricsInterceptor(MeterRegistry registry, String dao)
+    {
+        this.registry = registry;
+        this.dao = dao;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable
+    {
+        Method method = invocation.getMethod();
+        if (method.getDeclaringClass() == Object.class)
+        {
+            return invocation.proceed();
+        }
+        MethodMeters methodMeters = meters.computeIfAbsent(method, this::metersFor);
+
+        // a streaming read returns nothing -- count the rows as they go past instead
+        Object[] args = invocation.getArguments();
+        AtomicLong streamed = null;
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i] instanceof Consumer)
+            {
+                streamed = new AtomicLong();
+                args[i] = counting((Consumer<?>) args[i], streamed);
+            }
+        }
+
+        String exception = "none";
+        long start = System.nanoTime();
+        try
+        {
+            Object result = invocation.proceed();
+
+            long rows = streamed != null ? streamed.get() : rows(result, method.getReturnType());
+            if (rows >= 0 && methodMeters.rows() != null)
+            {
+                methodMeters.rows().record(rows);
+            }
+            return result;
+        }
+        catch (Throwable e)
+        {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        }
+        finally
+        {
+            // failed calls get a timer per exception type the first time each one is thrown
+            Timer calls = exception.equals("none")
+                    ? methodMeters.succeeded()
+                    : methodMeters.failed().computeIfAbsent(exception, type -> callsTimer(method.getName(), type));
+            calls.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private MethodMeters metersFor(Method method)
+    {
+        String name = method.getName();
+
+        // a streaming read is void but still hands back rows
+        boolean reads = !writes(method.getReturnType())
+                || Arrays.stream(method.getParameterTypes()).anyMatch(Consumer.class::isAssignableFrom);
+        DistributionSummary rows = reads
+                ? DistributionSummary.builder("dao.rows")
+                        .description("Rows returned by a DAO call")
+                        .tags("dao", dao, "method", name)
+                        .register(registry)
+                : null;
+
+        return new MethodMeters(callsTimer(name, "none"), rows, new ConcurrentHashMap<>());
+    }
+
+    private Timer callsTimer(String method, String exception)
+    {
+        return Timer.builder("dao.calls")
+                .description("Time spent in each DAO method")
+                .tags("dao", dao, "method", method, "exception", exception)
+                .register(registry);
+    }
+
+    // -1 for methods that write -- void, a success flag or a count of changed rows
+    static long rows(Object result, Class<?> returnType)
+    {
+        if (writes(returnType))
+        {
+            return -1;
+        }
+        if (result == null)
+        {
+            return 0;
+        }
+        if (result instanceof Collection)
+        {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map)
+        {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof ProductPage)
+        {
+            return ((ProductPage) result).getProducts().size();
+        }
+        if (result instanceof ShoppingCart)
+        {
+            return ((ShoppingCart) result).getItems().size();
+        }
+        return 1;
+    }
+
+    private static boolean writes(Class<?> returnType)
+    {
+        return returnType == void.class || returnType == boolean.class || returnType == Boolean.class
+                || returnType == int.class || returnType == long.class;
+    }
+
+    private static <T> Consumer<T> counting(Consumer<T> consumer, AtomicLong count)
+    {
+        return row ->
+        {
+            count.incrementAndGet();
+            consumer.accept(row);
+        };
+    }
+
+    // one method's meters -- rows is null for methods that write, failed is keyed by exception type
+    private record MethodMeters(Timer succeeded, DistributionSummary rows, Map<String, Timer> failed)
+    {
+    }
+}
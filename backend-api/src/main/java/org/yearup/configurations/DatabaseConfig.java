@@ -1,6 +1,5 @@
 package org.yearup.configurations;
 
-import org.apache.commons.dbcp2.BasicDataSource;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -12,10 +11,10 @@ public class DatabaseConfig
     private final String url;
     private final String username;
     private final String password;
-    private BasicDataSource basicDataSource;
+    private MeteredDataSource basicDataSource;
 
     @Bean
-    public BasicDataSource dataSource()
+    public MeteredDataSource dataSource()
     {
         return basicDataSource;
     }
@@ -23,15 +22,54 @@ public class DatabaseConfig
     @Autowired
     public DatabaseConfig(@Value("${datasource.url}") String url,
                           @Value("${datasource.username}") String username,
-                          @Value("${datasource.password}") String password)
+                          @Value("${datasource.password}") String password,
+                          @Value("${datasource.pool.initial-size:5}") int initialSize,
+                          @Value("${datasource.pool.max-total:20}") int maxTotal,
+                          @Value("${datasource.pool.min-idle:5}") int minIdle,
+                          @Value("${datasource.pool.max-idle:20}") int maxIdle,
+                          @Value("${datasource.pool.max-wait-millis:2000}") long maxWaitMillis,
+                          @Value("${datasource.pool.pool-prepared-statements:true}") boolean poolPreparedStatements,
+                          @Value("${datasource.pool.max-open-prepared-statements:100}") int maxOpenPreparedStatements,
+                          @Value("${datasource.connection-properties:}") String connectionProperties,
+                          @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads)
     {
         this.url = url;
         this.username = username;
         this.password = password;
-        basicDataSource = new BasicDataSource();
+        basicDataSource = new MeteredDataSource();
         basicDataSource.setUrl(url);
         basicDataSource.setUsername(username);
         basicDataSource.setPassword(password);
+
+        // pool sizing -- maxTotal caps concurrent database work, minIdle keeps warm connections ready
+        basicDataSource.setInitialSize(initialSize);
+        basicDataSource.setMaxTotal(maxTotal);
+        basicDataSource.setMinIdle(minIdle);
+        basicDataSource.setMaxIdle(maxIdle);
+        // fail instead of blocking forever when every connection is in use
+        basicDataSource.setMaxWaitMillis(maxWaitMillis);
+
+        // check connections the cheap way (Connection.isValid) before handing them out
+        // and let the evictor trim idle connections back down to minIdle
+        basicDataSource.setTestOnBorrow(true);
+        basicDataSource.setTestWhileIdle(true);
+        basicDataSource.setTimeBetweenEvictionRunsMillis(30_000);
+
+        // reuse prepared statements per connection instead of re-preparing the same SQL every call
+        basicDataSource.setPoolPreparedStatements(poolPreparedStatements);
+        basicDataSource.setMaxOpenPreparedStatements(maxOpenPreparedStatements);
+
+        // driver settings, e.g. cachePrepStmts=true;useServerPrepStmts=true;rewriteBatchedStatements=true
+        if (!connectionProperties.isBlank())
+        {
+            basicDataSource.setConnectionProperties(connectionProperties);
+        }
+
+        // on virtual threads every request can reach the pool at once -- only let as many in as there are connections
+        if (virtualThreads)
+        {
+            basicDataSource.setMaxConcurrentCallers(maxTotal);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.dbcp2.PoolableConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// the dbcp2 pool plus the numbers we need to size it
+// spring boot binds every MeterBinder bean to the registry, so these show up under /actuator/metrics
+public class MeteredDataSource extends BasicDataSource implements MeterBinder
+{
+    // null until the registry is bound -- connections are not timed before that
+    private volatile Timer acquireTimer;
+    // caps how many callers can be inside the pool at once -- null means no cap
+    // with virtual threads there can be thousands of callers, the rest wait here without holding a carrier thread
+    private volatile Semaphore callers;
+
+    // only lets this many threads borrow connections at the same time, usually maxTotal
+    public void setMaxConcurrentCallers(int permits)
+    {
+        this.callers = new Semaphore(permits, true);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException
+    {
+        Timer timer = acquireTimer;
+        if (timer == null)
+        {
+            return borrow();
+        }
+
+        // includes the time spent waiting for a free connection when the pool is exhausted
+        long start = System.nanoTime();
+        try
+        {
+            return borrow();
+        }
+        finally
+        {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Connection borrow() throws SQLException
+    {
+        Semaphore permits = callers;
+        if (permits == null)
+        {
+            return super.getConnection();
+        }
+
+        try
+        {
+            // same limit as the pool's own wait, so a caller never waits longer than before
+            // a negative max wait means wait forever, as it does in dbcp2
+            long maxWaitMillis = getMaxWaitMillis();
+            if (maxWaitMillis < 0)
+            {
+                permits.acquire();
+            }
+            else if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS))
+            {
+                throw new SQLException("Timed out waiting for a database connection");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a database connection", e);
+        }
+
+        try
+        {
+            return releasingOnClose(super.getConnection(), permits);
+        }
+        catch (SQLException | RuntimeException e)
+        {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // hands back the permit when the caller closes the connection -- only once, however often close is called
+    private static Connection releasingOnClose(Connection connection, Semaphore permits)
+    {
+        AtomicBoolean released = new AtomicBoolean();
+
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) ->
+                {
+                    try
+                    {
+                        return method.invoke(connection, args);
+                    }
+                    catch (InvocationTargetException e)
+                    {
+                        throw e.getCause();
+                    }
+                    finally
+                    {
+                        if (method.getName().equals("close") && released.compareAndSet(false, true))
+                        {
+                            permits.release();
+                        }
+                    }
+                });
+    }
+
+    // threads waiting for a permit before they even reach the pool
+    public int getNumCallersWaiting()
+    {
+        Semaphore permits = callers;
+        return permits == null ? 0 : permits.getQueueLength();
+    }
+
+    // threads currently blocked waiting for a connection
+    public int getNumWaiters()
+    {
+        GenericObjectPool<PoolableConnection> pool = getConnectionPool();
+        return pool == null ? 0 : pool.getNumWaiters();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry)
+    {
+        Gauge.builder("datasource.pool.active", this, MeteredDataSource::getNumActive)
+                .description("Connections currently borrowed from the pool")
+                .register(registry);
+        Gauge.builder("datasource.pool.idle", this, MeteredDataSource::getNumIdle)
+                .description("Connections sitting idle in the pool")
+                .register(registry);
+        Gauge.builder("datasource.pool.waiters", this, MeteredDataSource::getNumWaiters)
+                .description("Threads waiting for a connection")
+                .register(registry);
+        Gauge.builder("datasource.pool.max", this, MeteredDataSource::getMaxTotal)
+                .description("Maximum number of connections the pool will open")
+                .register(registry);
+        Gauge.builder("datasource.callers.waiting", this, MeteredDataSource::getNumCallersWaiting)
+                .description("Threads waiting for a turn at the pool when concurrent callers are capped")
+                .register(registry);
+
+        acquireTimer = Timer.builder("datasource.connection.acquire")
+                .description("Time taken to get a connection from the pool")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -0,0 +1,75 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTagsContributor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.method.HandlerMethod;
+import org.yearup.data.mysql.MySqlDaoBase;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+// spring boot already times every request as http.server.requests, tagged by uri, method and status
+// this adds the controller method to those timers and times every JDBC DAO call
+@Configuration
+public class MetricsConfig
+{
+    // names the controller method that handled the request, e.g. ProductsController.search
+    @Bean
+    public WebMvcTagsContributor handlerTagsContributor()
+    {
+        return new WebMvcTagsContributor()
+        {
+            @Override
+            public Iterable<Tag> getTags(HttpServletRequest request, HttpServletResponse response, Object handler, Throwable exception)
+            {
+                return Tags.of("handler", handlerName(handler));
+            }
+
+            @Override
+            public Iterable<Tag> getLongRequestTags(HttpServletRequest request, Object handler)
+            {
+                return Tags.of("handler", handlerName(handler));
+            }
+        };
+    }
+
+    // wraps every DAO in org.yearup.data.mysql so each method is timed without touching the DAOs themselves
+    // static so it is registered before the DAOs are created -- the registry is only looked up when one is wrapped
+    @Bean
+    public static BeanPostProcessor daoMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new BeanPostProcessor()
+        {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName)
+            {
+                if (!(bean instanceof MySqlDaoBase))
+                {
+                    return bean;
+                }
+
+                // a proxy on the DAO interfaces -- everything is injected by interface
+                ProxyFactory proxy = new ProxyFactory(bean);
+                proxy.addAdvice(new DaoMetricsInterceptor(meterRegistry.getObject(), bean.getClass().getSimpleName()));
+                return proxy.getProxy();
+            }
+        };
+    }
+
+    private static String handlerName(Object handler)
+    {
+        if (handler instanceof HandlerMethod)
+        {
+            HandlerMethod method = (HandlerMethod) handler;
+            return method.getBeanType().getSimpleName() + "." + method.getMethod().getName();
+        }
+        return "none";
+    }
+}
@@ -0,0 +1,42 @@
+package org.yearup.configurations;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// serves every request on its own virtual thread instead of Tomcat's fixed pool of platform threads
+// a request blocked on JDBC then parks without holding an OS thread, so bursts don't run out of request threads
+// needs a Java 21 runtime -- the executor is looked up at runtime so the code still builds for Java 17
+// the property is the one Spring Boot 3.2+ uses for the same thing
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig
+{
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService requestExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true needs Java 21 or newer, this is Java "
+                    + Runtime.version().feature(), e);
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Could not create the virtual thread executor", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandler(ExecutorService requestExecutor)
+    {
+        return protocolHandler -> protocolHandler.setExecutor(requestExecutor);
+    }
+}
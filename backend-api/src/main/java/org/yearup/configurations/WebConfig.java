@@ -0,0 +1,25 @@
+package org.yearup.configurations;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.yearup.controllers.CatalogETagInterceptor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer
+{
+    private final CatalogETagInterceptor catalogETagInterceptor;
+
+    public WebConfig(CatalogETagInterceptor catalogETagInterceptor)
+    {
+        this.catalogETagInterceptor = catalogETagInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry)
+    {
+        // every read of categories and products -- the admin writes on the same paths are let through untouched
+        registry.addInterceptor(catalogETagInterceptor)
+                .addPathPatterns("/categories", "/categories/**", "/products", "/products/**");
+    }
+}
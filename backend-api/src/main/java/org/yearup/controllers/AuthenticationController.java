@@ -13,15 +13,23 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import org.yearup.data.DuplicateUsernameException;
 import org.yearup.models.Profile;
-import org.yearup.data.ProfileDao;
 import org.yearup.data.UserDao;
 import org.yearup.models.authentication.LoginDto;
 import org.yearup.models.authentication.LoginResponseDto;
+import org.yearup.models.authentication.RefreshTokenDto;
 import org.yearup.models.authentication.RegisterUserDto;
+import org.yearup.models.authentication.Roles;
 import org.yearup.models.User;
+import org.yearup.security.AuthenticatedUser;
+import org.yearup.security.PasswordHashingBusyException;
 import org.yearup.security.jwt.JWTFilter;
 import org.yearup.security.jwt.TokenProvider;
+import org.yearup.security.jwt.TokenRevocations;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Map;
 
 @RestController
 @CrossOrigin
@@ -29,15 +37,15 @@ import org.yearup.security.jwt.TokenProvider;
 public class AuthenticationController {
 
     private final TokenProvider tokenProvider;
+    private final TokenRevocations tokenRevocations;
     private final AuthenticationManagerBuilder authenticationManagerBuilder;
     private UserDao userDao;
-    private ProfileDao profileDao;
 
-    public AuthenticationController(TokenProvider tokenProvider, AuthenticationManagerBuilder authenticationManagerBuilder, UserDao userDao, ProfileDao profileDao) {
+    public AuthenticationController(TokenProvider tokenProvider, TokenRevocations tokenRevocations, AuthenticationManagerBuilder authenticationManagerBuilder, UserDao userDao) {
         this.tokenProvider = tokenProvider;
+        this.tokenRevocations = tokenRevocations;
         this.authenticationManagerBuilder = authenticationManagerBuilder;
         this.userDao = userDao;
-        this.profileDao = profileDao;
     }
 
     @RequestMapping(value = "/login", method = RequestMethod.POST)
@@ -46,19 +54,28 @@ public class AuthenticationController {
         UsernamePasswordAuthenticationToken authenticationToken =
                 new UsernamePasswordAuthenticationToken(loginDto.getUsername(), loginDto.getPassword());
 
-        Authentication authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
+        Authentication authentication;
+        try
+        {
+            authentication = authenticationManagerBuilder.getObject().authenticate(authenticationToken);
+        }
+        catch (PasswordHashingBusyException e)
+        {
+            // every hashing thread is busy -- turn the login away now instead of queueing it
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
         SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = tokenProvider.createToken(authentication, false);
+        TokenProvider.Tokens tokens = tokenProvider.createTokens(authentication);
+        String jwt = tokens.accessToken();
 
         try
         {
-            User user = userDao.getByUserName(loginDto.getUsername());
-
-            if (user == null) throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+            // the user that was loaded to check the password -- no need to look it up again
+            User user = userOf((AuthenticatedUser) authentication.getPrincipal());
 
             HttpHeaders httpHeaders = new HttpHeaders();
             httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
-            return new ResponseEntity<>(new LoginResponseDto(jwt, user), httpHeaders, HttpStatus.OK);
+            return new ResponseEntity<>(new LoginResponseDto(jwt, tokens.refreshToken(), user), httpHeaders, HttpStatus.OK);
         }
         catch(Exception ex)
         {
@@ -66,33 +83,81 @@ public class AuthenticationController {
         }
     }
 
+    // a new short lived access token for the session of the refresh token
+    @RequestMapping(value = "/token/refresh", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, String>> refresh(@RequestBody RefreshTokenDto refreshTokenDto) {
+
+        String refreshToken = refreshTokenDto.getRefreshToken();
+        String jwt = refreshToken == null ? null : tokenProvider.refresh(refreshToken);
+        if (jwt == null)
+        {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Refresh token is invalid or expired.");
+        }
+
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(JWTFilter.AUTHORIZATION_HEADER, "Bearer " + jwt);
+        return new ResponseEntity<>(Map.of("token", jwt, "refreshToken", refreshToken), httpHeaders, HttpStatus.OK);
+    }
+
+    // ends the login session of the refresh token, or of the access token when there is no body --
+    // every token of the session stops working straight away
+    @RequestMapping(value = "/logout", method = RequestMethod.POST)
+    public ResponseEntity<Void> logout(@RequestBody(required = false) RefreshTokenDto refreshTokenDto, HttpServletRequest request) {
+
+        String token = refreshTokenDto != null && refreshTokenDto.getRefreshToken() != null
+                ? refreshTokenDto.getRefreshToken()
+                : bearerToken(request);
+        String sessionId = token == null ? null : tokenProvider.getSessionId(token);
+        if (sessionId == null)
+        {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Token is invalid or expired.");
+        }
+
+        try
+        {
+            tokenRevocations.revoke(sessionId);
+            return ResponseEntity.noContent().build();
+        }
+        catch (Exception e)
+        {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
+        }
+    }
+
     @ResponseStatus(HttpStatus.CREATED)
     @RequestMapping(value = "/register", method = RequestMethod.POST)
     public ResponseEntity<User> register(@Valid @RequestBody RegisterUserDto newUser) {
 
         try
         {
-            boolean exists = userDao.exists(newUser.getUsername());
-            if (exists)
-            {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User Already Exists.");
-            }
-
-            // create user
-            User user = userDao.create(new User(0, newUser.getUsername(), newUser.getPassword(), newUser.getRole()));
-
-            // create profile
-            Profile profile = new Profile();
-            profile.setUserId(user.getId());
-            profileDao.create(profile);
+            // the user and their empty profile in one transaction
+            // a taken username is caught by the database instead of checked for first
+            User user = userDao.register(new User(0, newUser.getUsername(), newUser.getPassword(), newUser.getRole()), new Profile());
 
             return new ResponseEntity<>(user, HttpStatus.CREATED);
         }
+        catch (DuplicateUsernameException e)
+        {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User Already Exists.");
+        }
+        catch (PasswordHashingBusyException e)
+        {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
         catch (Exception e)
         {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Oops... our bad.");
         }
     }
 
-}
+    private static String bearerToken(HttpServletRequest request) {
+        String header = request.getHeader(JWTFilter.AUTHORIZATION_HEADER);
+        return header != null && header.startsWith("Bearer ") ? header.substring(7) : null;
+    }
+
+    // the login response's user -- id, username and roles, never the password
+    private static User userOf(AuthenticatedUser principal) {
+        return new User(principal.getId(), principal.getUsername(), "", Roles.claim(principal.getAuthorities()));
+    }
 
+}
@@ -0,0 +1,54 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+// conditional GETs for the catalog endpoints
+// a client that sends back the ETag it already has gets a 304 before the controller runs, so the DAO is never asked
+// the tag is read before the controller loads anything -- if the catalog changes in between,
+// the client is left holding an older tag and simply gets the full body next time
+@Component
+public class CatalogETagInterceptor implements HandlerInterceptor {
+    private final CatalogVersion catalogVersion;
+    private final String cacheControl;
+
+    public CatalogETagInterceptor(CatalogVersion catalogVersion,
+                                  @Value("${catalog.http.max-age-seconds:0}") long maxAgeSeconds) {
+        this.catalogVersion = catalogVersion;
+        // 0 means browsers keep the copy but check it is still current every time
+        this.cacheControl = maxAgeSeconds > 0
+                ? CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue()
+                : CacheControl.noCache().cachePublic().getHeaderValue();
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+
+        // set before the body is written -- spring security leaves Cache-Control alone once it is set
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        // sets the ETag header, and answers 304 when If-None-Match already has it
+        boolean notModified = new ServletWebRequest(request, response).checkNotModified(etag(request));
+        return !notModified;
+    }
+
+    // /categories and /categories/{id} only hold categories -- everything else lists products
+    private String etag(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.startsWith("/categories") && !path.endsWith("/products")) {
+            return catalogVersion.categoriesETag();
+        }
+        return catalogVersion.productsETag();
+    }
+}
@@ -0,0 +1,62 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.cache.CachedProductDao;
+import org.yearup.events.CheckoutCompletedEvent;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+// counters that move every time the catalog changes -- every catalog response is tagged with one of them
+// admin writes bump them after the change is saved, and checkout bumps products because stock is in the JSON
+// with the catalog cache on, the products tag also carries the generation of the snapshot being served,
+// so a max-age reload or a stock change picked up from the database moves the tag too
+// categories have their own counter so shoppers checking out don't invalidate the category list
+// the start time is part of the tag so a restarted or second instance never reuses a tag for different data
+// the tags are weak (W/) because the same JSON may go out gzipped -- tomcat won't compress a response with a strong tag
+@Component
+public class CatalogVersion {
+    private final String instance = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong categories = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+    // null when the catalog cache is off -- products are read from the database every time
+    private final CachedProductDao cachedProductDao;
+
+    @Autowired
+    public CatalogVersion(Optional<CachedProductDao> cachedProductDao) {
+        this.cachedProductDao = cachedProductDao.orElse(null);
+    }
+
+    // counters only -- as if the catalog cache were off
+    public CatalogVersion() {
+        this(Optional.empty());
+    }
+
+    // ETag for the categories as they are now
+    public String categoriesETag() {
+        return "W/\"c-" + instance + "-" + categories.get() + "\"";
+    }
+
+    // ETag for the products as they are now
+    public String productsETag() {
+        if (cachedProductDao == null) {
+            return "W/\"p-" + instance + "-" + products.get() + "\"";
+        }
+        return "W/\"p-" + instance + "-" + products.get() + "-" + cachedProductDao.snapshotGeneration() + "\"";
+    }
+
+    public void categoriesChanged() {
+        categories.incrementAndGet();
+    }
+
+    public void productsChanged() {
+        products.incrementAndGet();
+    }
+
+    @EventListener
+    public void onCheckoutCompleted(CheckoutCompletedEvent event) {
+        productsChanged();
+    }
+}
@@ -2,13 +2,14 @@ package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.CategoryDao;
 import org.yearup.data.ProductDao;
 import org.yearup.models.Category;
-import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
 
 import java.util.List;
 
@@ -18,21 +19,27 @@ import java.util.List;
 // this will set this as the baseURL for every method in this controller
 // every method path is relative to /categories
 // http://localhost:8080/categories
-@CrossOrigin
+@CrossOrigin(exposedHeaders = ProductPage.NEXT_CURSOR_HEADER)
 // add annotation to allow cross site origin requests ( frontend apps )
+// the next page cursor header is exposed so the frontend can read it
 public class CategoriesController {
     // final so they never change after construction
     private final CategoryDao categoryDao;
     private final ProductDao productDao;
+    private final ProductPaging paging;
+    // bumped after every admin write so cached copies stop matching
+    private final CatalogVersion catalogVersion;
 
     // spring inject the DAO implementations
     // create an Autowired controller to inject the categoryDao and ProductDao
     // constructor injection
     @Autowired
-    public CategoriesController(CategoryDao categoryDao, ProductDao productDao) {
+    public CategoriesController(CategoryDao categoryDao, ProductDao productDao, ProductPaging paging, CatalogVersion catalogVersion) {
 
         this.categoryDao = categoryDao;
         this.productDao = productDao;
+        this.paging = paging;
+        this.catalogVersion = catalogVersion;
     }
 
     // handles get / categories - no path var and no request body
@@ -61,11 +68,21 @@ public class CategoriesController {
     // https://localhost:8080/categories/1/products
     // rest end point
     @GetMapping("/{categoryId}/products")
-    public List<Product> getProductsById(@PathVariable int categoryId) {
+    public ResponseEntity<?> getProductsById(@PathVariable int categoryId,
+                                             @RequestParam(name = "limit", required = false) Integer limit,
+                                             @RequestParam(name = "after", defaultValue = "0") int after,
+                                             @RequestParam(name = "view", required = false) String view) {
+        // ?view=list -- same page without the descriptions
+        if (paging.isListView(view)) {
+            ProductPage page = productDao.searchListingPage(categoryId, null, null, null, after, paging.pageSize(limit));
+            return paging.listResponse(page);
+        }
+
         // Sspring takes the id from URL
-        // looks for products for catId
-        // returns list of products in JSON
-        return productDao.listByCategoryId(categoryId);
+        // looks for one page of products for catId
+        // returns list of products in JSON -- X-Next-Cursor header is set when there are more
+        ProductPage page = productDao.listByCategoryIdPage(categoryId, after, paging.pageSize(limit));
+        return paging.response(page);
     }
 
 
@@ -79,7 +96,9 @@ public class CategoriesController {
     // spring reads the JSON body and creates a java obj
     public Category addCategory(@RequestBody Category category) {
         // inserts obj into DB, get gen id, gets row, returns full cat
-        return categoryDao.create(category);
+        Category created = categoryDao.create(category);
+        catalogVersion.categoriesChanged();
+        return created;
     }
 
 
@@ -103,6 +122,7 @@ public class CategoriesController {
         if (!updated) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category " + id + " not found.");
         }
+        catalogVersion.categoriesChanged();
     }
 
     // add annotation to call this method for a DELETE action - the url path must include the categoryId
@@ -118,5 +138,8 @@ public class CategoriesController {
         if (!deleted) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Category " + id + " not found.");
         }
+        // the category's products may go with it
+        catalogVersion.categoriesChanged();
+        catalogVersion.productsChanged();
     }
 }
@@ -1,35 +1,42 @@
 package org.yearup.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
-import org.yearup.data.OrderDao;
-import org.yearup.data.OrderLineItemDao;
+import org.yearup.data.CheckoutDao;
+import org.yearup.data.InsufficientStockException;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.events.CheckoutCompletedEvent;
 import org.yearup.models.*;
+import org.yearup.security.SecurityUtils;
 
 import java.security.Principal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @RestController
 @RequestMapping("/orders")
 @CrossOrigin
 public class OrdersController {
 
-    private final OrderDao orderDao;
-    private final OrderLineItemDao orderLineItemDao;
+    // writes the order, its line items and empties the cart in one transaction
+    private final CheckoutDao checkoutDao;
     private final ShoppingCartDao shoppingCartDao;
     private final UserDao userDao;
+    // tells caches holding product stock that it changed
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public OrdersController(OrderDao orderDao, OrderLineItemDao orderLineItemDao, ShoppingCartDao shoppingCartDao, UserDao userDao) {
-        this.orderDao = orderDao;
-        this.orderLineItemDao = orderLineItemDao;
+    public OrdersController(CheckoutDao checkoutDao, ShoppingCartDao shoppingCartDao, UserDao userDao,
+                            ApplicationEventPublisher eventPublisher) {
+        this.checkoutDao = checkoutDao;
         this.shoppingCartDao = shoppingCartDao;
         this.userDao = userDao;
+        this.eventPublisher = eventPublisher;
     }
 
     @PostMapping
@@ -37,54 +44,57 @@ public class OrdersController {
     @PreAuthorize("isAuthenticated()")
     public void checkout(Principal principal) {
 
-        User user = getLoggedInUser(principal);
-        ShoppingCart cart = getUserCart(user);
+        int userId = getLoggedInUserId(principal);
+
+        // checkout reads and clears the cart rows in the database, so anything still held in memory goes first
+        // and nothing more is written for this cart until checkout is done with the rows
+        shoppingCartDao.prepareCheckout(userId);
+        try {
+            checkout(userId);
+        } finally {
+            shoppingCartDao.checkoutFinished(userId);
+        }
+    }
+
+    private void checkout(int userId) {
         Order order = new Order();
 
-        order.setUserId(user.getId());
+        order.setUserId(userId);
         order.setDate(LocalDateTime.now());
         order.setAddress("");
         order.setCity("");
         order.setState("");
         order.setZip("");
-        order.setShippingAmount(cart.getTotal());
 
-        int orderId = orderDao.create(order);
-
-        for (ShoppingCartItem cartItem : cart.getItems().values()) {
-            OrderLineItem lineItem = new OrderLineItem();
-
-            lineItem.setOrderId(orderId);
-            lineItem.setProductId(cartItem.getProductId());
-            lineItem.setSalesPrice(cartItem.getProduct().getPrice());
-            lineItem.setQuantity(cartItem.getQuantity());
-            lineItem.setDiscount(cartItem.getDiscountPercent());
+        // all or nothing -- a failure part way through leaves no partial order behind
+        // the cart is read inside the checkout transaction, so the order is exactly what was in it
+        ShoppingCart cart;
+        try {
+            cart = checkoutDao.checkout(order);
+        } catch (InsufficientStockException e) {
+            // nothing was written -- the message names every item that is short
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
 
-            orderLineItemDao.create(lineItem);
+        if (cart.getItems().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Shopping cart is empty");
         }
 
-        shoppingCartDao.clearCart(user.getId());
+        List<Integer> productIds = List.copyOf(cart.getItems().keySet());
+        eventPublisher.publishEvent(new CheckoutCompletedEvent(userId, order.getOrderId(), productIds));
     }
 
 
-    private User getLoggedInUser(Principal principal) {
+    private int getLoggedInUserId(Principal principal) {
 
-        String username = principal.getName();
-        User user = userDao.getByUserName(username);
+        // the token carries the user id, older tokens fall back to a lookup by username
+        int userId = SecurityUtils.getUserId(principal)
+                .orElseGet(() -> userDao.getIdByUsername(principal.getName()));
 
-        if (user == null) {
+        if (userId < 0) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User does not exist");
         }
-        return user;
-    }
-
-    private ShoppingCart getUserCart(User user) {
-        ShoppingCart cart = shoppingCartDao.getByUserId(user.getId());
-
-        if ( cart == null || cart.getItems().isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Shopping cart is empty");
-        }
-        return cart;
+        return userId;
     }
 
 
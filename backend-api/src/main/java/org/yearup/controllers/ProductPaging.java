@@ -0,0 +1,66 @@
+package org.yearup.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.util.List;
+
+// shared page size rules for every endpoint that lists products
+@Component
+public class ProductPaging {
+    // ?view=list -- the compact listing without descriptions
+    public static final String LIST_VIEW = "list";
+
+    // page size used when the client does not send ?limit=
+    private final int defaultPageSize;
+    // largest page the server will return no matter what the client asks for
+    private final int maxPageSize;
+
+    public ProductPaging(@Value("${products.page.default-size:100}") int defaultPageSize,
+                         @Value("${products.page.max-size:500}") int maxPageSize) {
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    // picks the page size for a request -- rejects nonsense and caps it at the max
+    public int pageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be greater than zero.");
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    public boolean isListView(String view) {
+        return LIST_VIEW.equals(view);
+    }
+
+    // the body stays a plain JSON array -- the cursor for the next page travels in a header
+    public ResponseEntity<List<Product>> response(ProductPage page) {
+        return ok(page).body(page.getProducts());
+    }
+
+    // same array, written with Product.ListView so each product leaves out its description
+    public ResponseEntity<MappingJacksonValue> listResponse(ProductPage page) {
+        MappingJacksonValue body = new MappingJacksonValue(page.getProducts());
+        body.setSerializationView(Product.ListView.class);
+        return ok(page).body(body);
+    }
+
+    private static ResponseEntity.BodyBuilder ok(ProductPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+        if (page.hasNext()) {
+            response.header(ProductPage.NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response;
+    }
+}
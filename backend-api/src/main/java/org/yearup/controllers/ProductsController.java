@@ -1,29 +1,47 @@
 package org.yearup.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
 import org.yearup.data.ProductDao;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
 @RequestMapping("products")
-@CrossOrigin
+// the next page cursor is sent as a header so the frontend can read it cross origin
+@CrossOrigin(exposedHeaders = ProductPage.NEXT_CURSOR_HEADER)
 public class ProductsController {
     private final ProductDao productDao;
+    // page size limits and the next cursor header
+    private final ProductPaging paging;
+    // spring's configured mapper -- the streaming endpoint writes products with it one at a time
+    private final ObjectMapper objectMapper;
+    // bumped after every admin write so cached copies stop matching
+    private final CatalogVersion catalogVersion;
 
     @Autowired
-    public ProductsController(ProductDao productDao) {
+    public ProductsController(ProductDao productDao, ProductPaging paging, ObjectMapper objectMapper, CatalogVersion catalogVersion) {
         this.productDao = productDao;
+        this.paging = paging;
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
     }
 
     @GetMapping
-    public List<Product> search(
+    public ResponseEntity<?> search(
             // maps directly from the URL -- becomes null is not provided
             @RequestParam(name = "cat", required = false) Integer categoryId,
             // Reads ?minPrice= from the URL
@@ -31,8 +49,51 @@ public class ProductsController {
             @RequestParam(name = "minPrice", required = false) BigDecimal minPrice, @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
             // Reads ?subCategory= from the URL
             // If not provided, subCategory will be null
+            @RequestParam(name = "subCategory", required = false) String subCategory,
+            // page size -- capped at the server maximum
+            @RequestParam(name = "limit", required = false) Integer limit,
+            // cursor from the previous page's X-Next-Cursor header -- first page if not provided
+            @RequestParam(name = "after", defaultValue = "0") int after,
+            // ?view=list leaves out the descriptions -- the full products are the default
+            @RequestParam(name = "view", required = false) String view) {
+
+        if (paging.isListView(view)) {
+            ProductPage page = productDao.searchListingPage(categoryId, minPrice, maxPrice, subCategory, after, paging.pageSize(limit));
+            return paging.listResponse(page);
+        }
+
+        ProductPage page = productDao.searchPage(categoryId, minPrice, maxPrice, subCategory, after, paging.pageSize(limit));
+        return paging.response(page);
+    }
+
+    // returns every matching product with no page limit
+    // rows are written to the response as they are read, so memory does not grow with the result
+    // meant for exports and clients that pull the whole catalog
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody stream(
+            @RequestParam(name = "cat", required = false) Integer categoryId,
+            @RequestParam(name = "minPrice", required = false) BigDecimal minPrice,
+            @RequestParam(name = "maxPrice", required = false) BigDecimal maxPrice,
             @RequestParam(name = "subCategory", required = false) String subCategory) {
-        return productDao.search(categoryId, minPrice, maxPrice, subCategory);
+
+        return outputStream -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(outputStream)) {
+                json.writeStartArray();
+
+                productDao.streamSearch(categoryId, minPrice, maxPrice, subCategory, product -> {
+                    try {
+                        json.writeObject(product);
+                    } catch (IOException e) {
+                        // the consumer can't throw checked exceptions -- unwrapped again below
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+                json.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
     }
 
     @GetMapping("/{id}")
@@ -52,7 +113,9 @@ public class ProductsController {
     public Product addProduct(@RequestBody Product product) //  reads the JSON body and converts it into a product obj
     {
         // return a fully populated product obj
-        return productDao.create(product);
+        Product created = productDao.create(product);
+        catalogVersion.productsChanged();
+        return created;
     }
 
     @PutMapping("{id}")
@@ -69,6 +132,8 @@ public class ProductsController {
         if (!updated) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product " + id + " not found");
         }
+        // nothing changed when the product wasn't there
+        catalogVersion.productsChanged();
     }
 
     @DeleteMapping("{id}")
@@ -81,5 +146,7 @@ public class ProductsController {
         if (!deleted) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product " + id + " not found");
         }
+        // nothing changed when the product wasn't there
+        catalogVersion.productsChanged();
     }
 }
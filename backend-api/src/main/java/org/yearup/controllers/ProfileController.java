@@ -8,7 +8,7 @@ import org.springframework.web.server.ResponseStatusException;
 import org.yearup.data.ProfileDao;
 import org.yearup.data.UserDao;
 import org.yearup.models.Profile;
-import org.yearup.models.User;
+import org.yearup.security.SecurityUtils;
 
 import java.security.Principal;
 
@@ -33,10 +33,10 @@ public class ProfileController {
     public Profile getProfile(Principal principal) {
 
         // get the authenticated user
-        User user = getAuthenticatedUser(principal);
+        int userId = getAuthenticatedUserId(principal);
 
         // get user's profile using userid
-        Profile profile = profileDao.getByUserId(user.getId());
+        Profile profile = profileDao.getByUserId(userId);
 
         // if profile does not exist return 404 error
         if (profile == null) {
@@ -51,10 +51,10 @@ public class ProfileController {
     @PutMapping
     public void updateProfile(@RequestBody Profile profile, Principal principal) {
         // get the authenticated user
-        User user = getAuthenticatedUser(principal);
+        int userId = getAuthenticatedUserId(principal);
 
         // mapos userid on the profile obj
-        profile.setUserId(user.getId());
+        profile.setUserId(userId);
 
         boolean updated = profileDao.update(profile);
 
@@ -64,27 +64,24 @@ public class ProfileController {
 
     }
 
-    private User getAuthenticatedUser(Principal principal) {
+    private int getAuthenticatedUserId(Principal principal) {
 
         // if principal is null spring did not attach a logged in user
         if (principal == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
         }
 
-        // get the currently logged in username - from the login token
-        String userName = principal.getName();
+        // the login token carries the user id -- older tokens only have the username
+        // so fall back to finding the database user that matches it
+        int userId = SecurityUtils.getUserId(principal)
+                .orElseGet(() -> userDao.getIdByUsername(principal.getName()));
 
-        // System.out.println("JWT username = [" + userName + "]");
-
-        // find database user that matches username - to get userid
-        User user = userDao.getByUserName(userName);
-
-        // if no user record exists, return a 404
-        if (user == null) {
+        // if no user record exists, return a 401
+        if (userId < 0) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User not found");
         }
-        // return the fully loaded user object - this is confirmation that the user is verified and in the database
-        return user;
+        // return the user id - this is confirmation that the user is verified and in the database
+        return userId;
     }
 
 
@@ -4,13 +4,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.yearup.data.ProductDao;
 import org.yearup.data.ShoppingCartDao;
 import org.yearup.data.UserDao;
+import org.yearup.data.cache.CartSummaryCache;
+import org.yearup.models.CartDelta;
+import org.yearup.models.CartItemDto;
 import org.yearup.models.ShoppingCart;
 import org.yearup.models.ShoppingCartItem;
-import org.yearup.models.User;
+import org.yearup.security.SecurityUtils;
 
 import java.security.Principal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 // convert this class to a REST controller
 @RestController
@@ -20,16 +27,28 @@ import java.security.Principal;
 // only loggedin users should have access to these actions
 public class ShoppingCartController {
 
+    // ?view=delta on a cart change returns only the changed line and the new total
+    // anything else (the default) returns the whole cart like before
+    private static final String DELTA_VIEW = "delta";
+    // most lines one bulk request may add -- keeps a single transaction from growing without limit
+    private static final int MAX_BULK_ITEMS = 500;
+
     // a shopping cart requires
     private final ShoppingCartDao shoppingCartDao;
     private final UserDao userDao;
+    // checks products exist before they are added -- a missing one would otherwise fail the foreign key as a 500
+    private final ProductDao productDao;
+    // works out the new total for delta responses without reloading the cart
+    private final CartSummaryCache cartSummaryCache;
 
 
     // constructor injection
     @Autowired
-    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserDao userDao) {
+    public ShoppingCartController(ShoppingCartDao shoppingCartDao, UserDao userDao, ProductDao productDao, CartSummaryCache cartSummaryCache) {
         this.shoppingCartDao = shoppingCartDao;
         this.userDao = userDao;
+        this.productDao = productDao;
+        this.cartSummaryCache = cartSummaryCache;
     }
 
     // each method in this controller requires a Principal object as a parameter
@@ -37,56 +56,109 @@ public class ShoppingCartController {
     @GetMapping("")
     public ShoppingCart getCart(Principal principal) {
 
-        User user = getAuthenticatedUser(principal);
+        int userId = getAuthenticatedUserId(principal);
 
         // asks the shoppincartdao to build cart of user based on user id from the authenticated user
         // create shopping cart item objects
         // adds them to the shopping cart
         // return a fully built cart - converts object to JSON
-        ShoppingCart cart = shoppingCartDao.getByUserId(user.getId());
-        return cart;
+        // the full cart is loaded anyway -- keep the summary in step with it
+        return cartSummaryCache.load(userId);
     }
 
 
     @PostMapping("/products/{productId}")
     @ResponseStatus(HttpStatus.CREATED)
-    public ShoppingCart addProduct(@PathVariable int productId, Principal principal) {
+    public Object addProduct(@PathVariable int productId,
+                             @RequestParam(defaultValue = "1") int quantity,
+                             @RequestParam(defaultValue = "cart") String view,
+                             Principal principal) {
+
+        if (quantity <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero");
+        }
+        requireProduct(productId);
 
-        // get the database user with the userid
-        User user = getAuthenticatedUser(principal);
+        // get the userid of the logged in user
+        int userId = getAuthenticatedUserId(principal);
 
         try {
             // add the product to the users cart in the database ( update or insert based on if product exists )
-            // for this user add this product to the cart
-            shoppingCartDao.addProduct(user.getId(), productId);
+            // for this user add this many units of this product to the cart
+            shoppingCartDao.addProduct(userId, productId, quantity);
 
-            // reload and return the updated shopping cart
-            return shoppingCartDao.getByUserId(user.getId());
+            // reload and return the updated shopping cart -- or just the changed line
+            return cartResponse(userId, productId, view);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to add product to cart", e);
         }
     }
 
 
+    // adds a whole list of products in one request -- e.g. restoring a saved cart or importing a wish list
+    // the body is a list of { productId, quantity }, all lines are added in one transaction or none are
+    @PostMapping("/products")
+    @ResponseStatus(HttpStatus.CREATED)
+    public ShoppingCart addProducts(@RequestBody List<CartItemDto> items, Principal principal) {
+
+        if (items == null || items.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one product is required");
+        }
+        if (items.size() > MAX_BULK_ITEMS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "No more than " + MAX_BULK_ITEMS + " products per request");
+        }
+
+        // the same product listed twice is added once with the quantities summed
+        Map<Integer, Integer> quantities = new HashMap<>();
+        for (CartItemDto item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero");
+            }
+            try {
+                quantities.merge(item.getProductId(), item.getQuantity(), Math::addExact);
+            } catch (ArithmeticException e) {
+                // the summed quantity would wrap around to a negative number
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity for product " + item.getProductId() + " is too large");
+            }
+        }
+        // every product is checked before anything is written -- the batch is all or nothing
+        quantities.keySet().forEach(this::requireProduct);
+
+        int userId = getAuthenticatedUserId(principal);
+
+        try {
+            shoppingCartDao.addProducts(userId, quantities);
+
+            // one reload for the whole batch
+            return cartSummaryCache.load(userId);
+        } catch (Exception e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to add products to cart", e);
+        }
+    }
+
+
     // add a PUT method to update an existing product in the cart - the url should be
     // https://localhost:8080/cart/products/15 (15 is the productId to be updated)
     // the BODY should be a ShoppingCartItem - quantity is the only value that will be updated
 
     @PutMapping("/products/{productId}")
-    public ShoppingCart updateProduct(@PathVariable int productId, @RequestBody ShoppingCartItem item, Principal principal) {
+    public Object updateProduct(@PathVariable int productId,
+                                @RequestBody ShoppingCartItem item,
+                                @RequestParam(defaultValue = "cart") String view,
+                                Principal principal) {
 
         if (item.getQuantity() <= 0) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quantity must be greater than zero");
         }
 
         // identify if user is authentic - ensure updating the correct users cart
-        User user = getAuthenticatedUser(principal);
+        int userId = getAuthenticatedUserId(principal);
 
         try {
             // update the quanity for the specific product
-            shoppingCartDao.updateProductQuantity(user.getId(), productId, item.getQuantity());
+            shoppingCartDao.updateProductQuantity(userId, productId, item.getQuantity());
             // reload and return the updated shopping cart - shows new quantity and re-calcualted totals
-            return shoppingCartDao.getByUserId(user.getId());
+            return cartResponse(userId, productId, view);
 
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to update product quantity.", e);
@@ -97,41 +169,62 @@ public class ShoppingCartController {
     // https://localhost:8080/cart
 
     @DeleteMapping
-    public ShoppingCart clearCart(Principal principal) {
+    public Object clearCart(@RequestParam(defaultValue = "cart") String view, Principal principal) {
 
         // ensure clearing cart for the correct user
-        User user = getAuthenticatedUser(principal);
+        int userId = getAuthenticatedUserId(principal);
 
 
         try {
             // clear all items for user in the database
-            shoppingCartDao.clearCart(user.getId());
+            shoppingCartDao.clearCart(userId);
+            cartSummaryCache.invalidate(userId);
+
+            // the cart is empty now, there is nothing to load
+            if (DELTA_VIEW.equals(view)) {
+                return CartDelta.cleared();
+            }
             // reload and return the now-empty shopping cart -- where total is 0
-            return shoppingCartDao.getByUserId(user.getId());
+            return shoppingCartDao.getByUserId(userId);
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to clear shopping cart", e);
         }
     }
 
-    private User getAuthenticatedUser(Principal principal) {
+    // returns the whole cart, or with ?view=delta only the line that changed and the new total
+    // a delta reads one cart row instead of re-running the join for the whole cart
+    private Object cartResponse(int userId, int productId, String view) {
+        if (!DELTA_VIEW.equals(view)) {
+            return cartSummaryCache.load(userId);
+        }
+        return cartSummaryCache.delta(userId, productId);
+    }
+
+    // the catalog is in memory when the catalog cache is on, so this is usually no query at all
+    private void requireProduct(int productId) {
+        if (productDao.getById(productId) == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Product " + productId + " not found.");
+        }
+    }
+
+    private int getAuthenticatedUserId(Principal principal) {
 
         // if principal is null spring did not attach a logged in user
         if (principal == null) {
             throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "User is not authenticated");
         }
 
-        // get the currently logged in username - from the login token
-        String userName = principal.getName();
-
-        // find database user that matches username - to get userid
-        User user = userDao.getByUserName(userName);
+        // tokens carry the user id -- no database lookup needed
+        // older tokens only have the username, so find the user that matches it
+        int userId = SecurityUtils.getUserId(principal)
+                .orElseGet(() -> userDao.getIdByUsername(principal.getName()));
 
         // if no user record exists, return a 404
-        if (user == null) {
+        if (userId < 0) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found");
         }
-        // return the fully loaded user object - this is confirmation that the user is verified and in the database
-        return user;
+        // return the user id - this is confirmation that the user is verified and in the database
+        return userId;
     }
 
 }
@@ -0,0 +1,14 @@
+package org.yearup.data;
+
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+
+public interface CheckoutDao {
+
+    // turns the user's cart into an order in a single transaction
+    // reads and locks the cart, reserves stock, inserts the order, inserts every line item and empties the cart -- all or nothing
+    // throws InsufficientStockException if any item has less stock than its quantity
+    // returns the cart that was checked out and sets the new order id on the order
+    // an empty cart is returned as is and nothing is written
+    ShoppingCart checkout(Order order);
+}
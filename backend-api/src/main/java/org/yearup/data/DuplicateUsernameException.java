@@ -0,0 +1,10 @@
+package org.yearup.data;
+
+// thrown when a new user's username is already taken
+// nothing was written -- the insert was rejected by the unique key on username
+public class DuplicateUsernameException extends RuntimeException {
+
+    public DuplicateUsernameException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,20 @@
+package org.yearup.data;
+
+import java.util.List;
+
+// thrown when checkout can't reserve enough stock for one or more cart items
+// the whole checkout is rolled back before this is thrown
+public class InsufficientStockException extends RuntimeException {
+
+    // the products that ran out, in product_id order
+    private final List<Integer> productIds;
+
+    public InsufficientStockException(String message, List<Integer> productIds) {
+        super(message);
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+}
@@ -1,9 +1,11 @@
 package org.yearup.data;
 
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProductDao {
     List<Product> search(
@@ -19,6 +21,42 @@ public interface ProductDao {
     // gets all products that belong to category
     List<Product> listByCategoryId(int categoryId);
 
+    // same filters as search but returns at most limit products ordered by product_id
+    // afterProductId is the cursor -- only products with a larger id are returned (0 = first page)
+    ProductPage searchPage(
+            Integer categoryId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String subCategory,
+            int afterProductId,
+            int limit);
+
+    // same page as searchPage for the compact listing -- products come back without their description
+    // implementations that already hold full products can just return the normal page
+    default ProductPage searchListingPage(
+            Integer categoryId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String subCategory,
+            int afterProductId,
+            int limit) {
+        return searchPage(categoryId, minPrice, maxPrice, subCategory, afterProductId, limit);
+    }
+
+    // same filters as search but hands each product to the consumer as its row is read
+    // nothing is collected, so memory stays flat however many products match
+    void streamSearch(
+            Integer categoryId,
+            BigDecimal minPrice,
+            BigDecimal maxPrice,
+            String subCategory,
+            Consumer<Product> consumer);
+
+    // one page of the products that belong to a category
+    default ProductPage listByCategoryIdPage(int categoryId, int afterProductId, int limit) {
+        return searchPage(categoryId, null, null, null, afterProductId, limit);
+    }
+
     // gets 1 product based on productId
     // returns null if not found
     Product getById(int productId);
@@ -1,6 +1,9 @@
 package org.yearup.data;
 
 import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.util.Map;
 
 public interface ShoppingCartDao {
     // get the full shopping cart for a user
@@ -8,10 +11,24 @@ public interface ShoppingCartDao {
     // returns a fully populated shopping cart object including items and product details
     ShoppingCart getByUserId(int userId);
 
+    // get one line of a user's cart with its product details
+    // returns null if the product is not in the cart
+    ShoppingCartItem getItem(int userId, int productId);
+
     // add a product to a user's shopping cart
     // if product not already in cart - inserts a new record with quantity = 1
     // if product already in cart - increases quantity by 1
-    void addProduct(int userId, int productId);
+    default void addProduct(int userId, int productId) {
+        addProduct(userId, productId, 1);
+    }
+
+    // add quantity units of a product to a user's shopping cart
+    // inserts the row if it isn't there yet, otherwise adds quantity to what is already in the cart
+    void addProduct(int userId, int productId, int quantity);
+
+    // adds many products at once -- product id -> quantity to add
+    // all or nothing, either every line is added or none are
+    void addProducts(int userId, Map<Integer, Integer> quantities);
 
     // updates the quantity of a specific product in the cart
     // sets quantity to the provided value
@@ -20,5 +37,22 @@ public interface ShoppingCartDao {
     // removes all items from the user's shopping cart
     void clearCart(int userId);
 
+    // sets many cart lines at once -- user id -> (product id -> quantity)
+    // a quantity of 0 removes the line
+    void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser);
+
+    // makes sure everything in the user's cart has been written to the database
+    // only does something when cart changes are held in memory before they are written
+    default void flush(int userId) {
+    }
+
+    // called right before checkout reads the user's cart rows -- writes everything still in memory,
+    // then holds back further writes of this cart until checkoutFinished, so none can land under the checkout
+    default void prepareCheckout(int userId) {
+        flush(userId);
+    }
 
+    // called once checkout is done with the user's cart rows, whether it succeeded or failed
+    default void checkoutFinished(int userId) {
+    }
 }
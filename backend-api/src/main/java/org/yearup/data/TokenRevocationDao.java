@@ -0,0 +1,16 @@
+package org.yearup.data;
+
+import java.time.Instant;
+import java.util.Map;
+
+public interface TokenRevocationDao {
+
+    // records that every token of a login session is revoked until expiresAt
+    void revoke(String sessionId, Instant expiresAt);
+
+    // every revocation that hasn't expired yet -- session id -> when it can be forgotten
+    Map<String, Instant> getActive();
+
+    // deletes revocations whose tokens have all expired, returns how many were removed
+    int deleteExpired();
+}
@@ -1,5 +1,6 @@
 package org.yearup.data;
 
+import org.yearup.models.Profile;
 import org.yearup.models.User;
 
 import java.util.List;
@@ -16,5 +17,12 @@ public interface UserDao {
 
     User create(User user);
 
+    // creates the user and their profile in one transaction
+    // throws DuplicateUsernameException when the username is taken
+    User register(User user, Profile profile);
+
+    // stores a new hash for an existing user -- the password itself is unchanged, only how it is hashed
+    void updatePassword(String username, String hashedPassword);
+
     boolean exists(String username);
 }
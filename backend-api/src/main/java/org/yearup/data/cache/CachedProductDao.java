@@ -0,0 +1,246 @@
+package org.yearup.data.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.events.CheckoutCompletedEvent;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+// serves product reads from an in-memory snapshot of the catalog
+// the catalog only changes through create/update/delete, so those write through to MySQL and then patch the snapshot
+// the products it hands out are shared by every request, so they are read-only
+// @Primary so controllers asking for a ProductDao get this one instead of MySqlProductDao
+@Component
+@Primary
+@ConditionalOnProperty(name = "catalog.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachedProductDao implements ProductDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachedProductDao.class);
+    private static final int WRITE_STRIPES = 64;
+
+    // the database backed dao -- all writes and snapshot loads go through it
+    private final ProductDao delegate;
+    // snapshot is rebuilt from the database once it is older than this (0 = never)
+    private final long maxAgeMillis;
+
+    // volatile so readers always see the latest fully built snapshot without locking
+    // only replaced while holding this dao's lock -- no database call is ever made while holding it
+    private volatile ProductCatalogSnapshot snapshot;
+    // bumped after every write this dao makes, per stripe of product ids
+    // a row read back after a write is only patched in if no other write to its stripe landed meanwhile
+    private final AtomicLongArray writes = new AtomicLongArray(WRITE_STRIPES);
+    // one full reload at a time -- writers never wait on it
+    private final Object reloading = new Object();
+    // patches made while a reload is loading, so they can be made again on the new snapshot
+    // null when no reload is running, only touched while holding this dao's lock
+    private List<UnaryOperator<ProductCatalogSnapshot>> patchedDuringReload;
+
+    public CachedProductDao(@Qualifier("mySqlProductDao") ProductDao delegate,
+                            @Value("${catalog.cache.max-age-seconds:300}") long maxAgeSeconds) {
+        this.delegate = delegate;
+        this.maxAgeMillis = maxAgeSeconds * 1000;
+    }
+
+    @Override
+    public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory) {
+        return snapshot().search(categoryId, minPrice, maxPrice, subCategory);
+    }
+
+    @Override
+    public List<Product> listByCategoryId(int categoryId) {
+        return snapshot().listByCategoryId(categoryId);
+    }
+
+    @Override
+    public ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                  int afterProductId, int limit) {
+        List<Product> products = snapshot().search(categoryId, minPrice, maxPrice, subCategory);
+        return ProductCatalogSnapshot.page(products, afterProductId, limit);
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer) {
+        // the products are already in memory -- nothing to stream from the database
+        snapshot().search(categoryId, minPrice, maxPrice, subCategory).forEach(consumer);
+    }
+
+    @Override
+    public Product getById(int productId) {
+        return snapshot().getById(productId);
+    }
+
+    @Override
+    public Product create(Product product) {
+        Product created = delegate.create(product);
+
+        // add the new row to the snapshot only if the insert succeeded
+        if (created == null) {
+            return null;
+        }
+        writes.incrementAndGet(stripe(created.getProductId()));
+
+        Product shared = ReadOnlyProduct.of(created);
+        synchronized (this) {
+            patch(List.of(shared), List.of());
+        }
+        return shared;
+    }
+
+    @Override
+    public boolean update(int productId, Product product) {
+        boolean updated = delegate.update(productId, product);
+
+        if (updated) {
+            // re-read the row so the snapshot holds exactly what the database stored
+            refresh(List.of(productId));
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean delete(int productId) {
+        boolean deleted = delegate.delete(productId);
+
+        if (deleted) {
+            writes.incrementAndGet(stripe(productId));
+            synchronized (this) {
+                patch(List.of(), List.of(productId));
+            }
+        }
+        return deleted;
+    }
+
+    // checkout takes stock straight from the products table, so re-read the products it touched
+    @EventListener
+    public void onCheckoutCompleted(CheckoutCompletedEvent event) {
+        if (snapshot == null) {
+            return;
+        }
+        refresh(event.getProductIds());
+    }
+
+    // which snapshot reads are served from -- reloads it first if it is too old, like any other read
+    public long snapshotGeneration() {
+        return snapshot().getGeneration();
+    }
+
+    // drops the snapshot -- the next read reloads the whole catalog
+    public synchronized void invalidate() {
+        snapshot = null;
+    }
+
+    private ProductCatalogSnapshot snapshot() {
+        ProductCatalogSnapshot current = snapshot;
+        if (current != null && !current.isOlderThan(maxAgeMillis)) {
+            return current;
+        }
+        return reload();
+    }
+
+    // the catalog is loaded without holding this dao's lock, so writes and their snapshot patches go on meanwhile
+    // anything patched during the load is patched into the new snapshot again before it is swapped in
+    private ProductCatalogSnapshot reload() {
+        synchronized (reloading) {
+            // another thread may have reloaded while this one waited for the lock
+            ProductCatalogSnapshot current = snapshot;
+            if (current != null && !current.isOlderThan(maxAgeMillis)) {
+                return current;
+            }
+
+            synchronized (this) {
+                patchedDuringReload = new ArrayList<>();
+            }
+            try {
+                // no filters -- loads every product
+                List<Product> products = delegate.search(null, null, null, null);
+                ProductCatalogSnapshot loaded = ProductCatalogSnapshot.of(products);
+
+                synchronized (this) {
+                    for (UnaryOperator<ProductCatalogSnapshot> patch : patchedDuringReload) {
+                        loaded = patch.apply(loaded);
+                    }
+                    snapshot = loaded;
+                }
+                LOG.debug("loaded product catalog snapshot with {} products", products.size());
+                return loaded;
+            } finally {
+                synchronized (this) {
+                    patchedDuringReload = null;
+                }
+            }
+        }
+    }
+
+    // re-reads rows after a write and patches them into the snapshot
+    // the rows are read without the lock -- if another write to one of them lands while they are read,
+    // they are read again, so an older row never replaces a newer one
+    private void refresh(Collection<Integer> productIds) {
+        for (int productId : productIds) {
+            writes.incrementAndGet(stripe(productId));
+        }
+
+        while (true) {
+            long[] seen = writesTo(productIds);
+
+            List<Product> changed = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            for (int productId : productIds) {
+                Product current = delegate.getById(productId);
+                if (current == null) {
+                    removed.add(productId);
+                } else {
+                    changed.add(current);
+                }
+            }
+
+            synchronized (this) {
+                if (Arrays.equals(seen, writesTo(productIds))) {
+                    patch(changed, removed);
+                    return;
+                }
+            }
+        }
+    }
+
+    // callers hold this dao's lock
+    private void patch(Collection<Product> changed, Collection<Integer> removed) {
+        UnaryOperator<ProductCatalogSnapshot> patch = current -> current.patched(changed, removed);
+
+        if (snapshot != null) {
+            snapshot = patch.apply(snapshot);
+        }
+        if (patchedDuringReload != null) {
+            patchedDuringReload.add(patch);
+        }
+    }
+
+    private long[] writesTo(Collection<Integer> productIds) {
+        long[] seen = new long[productIds.size()];
+        int i = 0;
+        for (int productId : productIds) {
+            seen[i++] = writes.get(stripe(productId));
+        }
+        return seen;
+    }
+
+    private static int stripe(int productId) {
+        return Math.floorMod(productId, WRITE_STRIPES);
+    }
+}
@@ -0,0 +1,85 @@
+package org.yearup.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProfileDao;
+import org.yearup.models.Profile;
+
+import java.time.Duration;
+
+// keeps recently viewed profiles in memory so the profile page doesn't cost a profiles table
+// round trip every time it loads -- profiles hardly ever change
+// writes go to the database first and then straight into the cache, so a reader never sees an old profile
+// hits and misses are published as cache.gets{cache=profiles}
+@Component
+@Primary
+@ConditionalOnProperty(name = "profiles.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachedProfileDao implements ProfileDao {
+
+    // the database backed dao -- misses and all writes go through it
+    private final ProfileDao delegate;
+    // user id -> profile, shared by every reader so it must not be changed in place
+    private final Cache<Integer, Profile> profilesByUserId;
+
+    public CachedProfileDao(@Qualifier("mySqlProfileDao") ProfileDao delegate,
+                            MeterRegistry meterRegistry,
+                            @Value("${profiles.cache.max-size:10000}") long maxSize,
+                            @Value("${profiles.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.profilesByUserId = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, profilesByUserId, "profiles");
+    }
+
+    @Override
+    public Profile create(Profile profile) {
+        Profile created = delegate.create(profile);
+
+        profilesByUserId.put(profile.getUserId(), copyOf(profile));
+        return created;
+    }
+
+    @Override
+    public Profile getByUserId(int userId) {
+        // loaded atomically -- a write-through for the same user waits for the load instead of being
+        // overwritten by the older row it read
+        // a null from the database is returned but not cached, so a profile created later is visible straight away
+        return profilesByUserId.get(userId, delegate::getByUserId);
+    }
+
+    @Override
+    public boolean update(Profile profile) {
+        boolean updated;
+        try {
+            updated = delegate.update(profile);
+        } catch (RuntimeException e) {
+            // we can't tell whether the row changed -- the next read goes to the database
+            profilesByUserId.invalidate(profile.getUserId());
+            throw e;
+        }
+
+        if (updated) {
+            profilesByUserId.put(profile.getUserId(), copyOf(profile));
+        } else {
+            profilesByUserId.invalidate(profile.getUserId());
+        }
+        return updated;
+    }
+
+    // the caller keeps its own object -- whatever it does to it afterwards doesn't reach the cache
+    private static Profile copyOf(Profile profile) {
+        return new Profile(profile.getUserId(), profile.getFirstName(), profile.getLastName(), profile.getPhone(),
+                profile.getEmail(), profile.getAddress(), profile.getCity(), profile.getState(), profile.getZip());
+    }
+}
@@ -0,0 +1,101 @@
+package org.yearup.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.yearup.data.UserDao;
+import org.yearup.models.Profile;
+import org.yearup.models.User;
+
+import java.time.Duration;
+import java.util.List;
+
+// keeps recently used users in memory so mapping a logged in username to a user
+// doesn't cost a users table round trip on every request
+// entries expire after a ttl and the cache is bounded, so it can't grow with the user base
+@Component
+@Primary
+@ConditionalOnProperty(name = "users.cache.enabled", havingValue = "true", matchIfMissing = true)
+public class CachedUserDao implements UserDao {
+
+    // the database backed dao -- misses and all writes go through it
+    private final UserDao delegate;
+    // username -> user
+    private final Cache<String, User> usersByName;
+
+    public CachedUserDao(@Qualifier("mySqlUserDao") UserDao delegate,
+                         @Value("${users.cache.max-size:10000}") long maxSize,
+                         @Value("${users.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.delegate = delegate;
+        this.usersByName = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    @Override
+    public List<User> getAll() {
+        return delegate.getAll();
+    }
+
+    @Override
+    public User getUserById(int userId) {
+        return delegate.getUserById(userId);
+    }
+
+    @Override
+    public User getByUserName(String username) {
+        if (username == null) {
+            return null;
+        }
+
+        User user = usersByName.getIfPresent(username);
+        if (user == null) {
+            user = delegate.getByUserName(username);
+
+            // unknown usernames are not cached -- a later registration must be visible straight away
+            if (user != null) {
+                usersByName.put(username, user);
+            }
+        }
+        return user;
+    }
+
+    @Override
+    public int getIdByUsername(String username) {
+        User user = getByUserName(username);
+        return user == null ? -1 : user.getId();
+    }
+
+    @Override
+    public User create(User user) {
+        User created = delegate.create(user);
+
+        // drop anything cached under this name so the next lookup reads the new row
+        usersByName.invalidate(user.getUsername());
+        return created;
+    }
+
+    @Override
+    public User register(User user, Profile profile) {
+        User created = delegate.register(user, profile);
+
+        usersByName.invalidate(user.getUsername());
+        return created;
+    }
+
+    @Override
+    public void updatePassword(String username, String hashedPassword) {
+        delegate.updatePassword(username, hashedPassword);
+        usersByName.invalidate(username);
+    }
+
+    @Override
+    public boolean exists(String username) {
+        return getByUserName(username) != null;
+    }
+}
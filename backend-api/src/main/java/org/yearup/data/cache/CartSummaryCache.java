@@ -0,0 +1,128 @@
+package org.yearup.data.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.events.CheckoutCompletedEvent;
+import org.yearup.models.CartDelta;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+// remembers what is in each active cart (product id -> line total) so a cart change can
+// answer with a new total without reloading the whole cart or re-reading every product
+// line totals are kept as they were read from the database -- a price change shows up once that line
+// changes again, the cart is loaded in full, or the summary reaches its max age
+@Component
+public class CartSummaryCache {
+
+    private final ShoppingCartDao shoppingCartDao;
+    // user id -> summary, a summary is only read or changed while holding its own lock
+    private final Cache<Integer, CartSummary> summariesByUser;
+
+    public CartSummaryCache(ShoppingCartDao shoppingCartDao,
+                            @Value("${cart.summary.max-size:10000}") long maxSize,
+                            @Value("${cart.summary.max-age-seconds:300}") long maxAgeSeconds) {
+        this.shoppingCartDao = shoppingCartDao;
+        // expires from when the summary was created, however often it is used -- bounds how old a price can get
+        this.summariesByUser = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(maxAgeSeconds))
+                .build();
+    }
+
+    // loads the whole cart and records it
+    public ShoppingCart load(int userId) {
+        CartSummary summary = summaryOf(userId);
+        synchronized (summary) {
+            ShoppingCart cart = shoppingCartDao.getByUserId(userId);
+            summary.reset(cart);
+            return cart;
+        }
+    }
+
+    // reads the one line that changed and returns it with the new cart total
+    // the read happens under the summary's lock, so a slower request can't put back an older line
+    // over the one a later request already read -- only this user's requests wait on it
+    public CartDelta delta(int userId, int productId) {
+        CartSummary summary = summaryOf(userId);
+        synchronized (summary) {
+            ShoppingCartItem item;
+            if (summary.loaded) {
+                item = shoppingCartDao.getItem(userId, productId);
+                summary.apply(productId, item);
+            } else {
+                // the cart is loaded after the write, so it already includes this change
+                ShoppingCart cart = shoppingCartDao.getByUserId(userId);
+                summary.reset(cart);
+                item = cart.get(productId);
+            }
+            return new CartDelta(productId, item, summary.total());
+        }
+    }
+
+    // the cart was emptied -- the next change loads it again
+    public void invalidate(int userId) {
+        CartSummary summary = summariesByUser.getIfPresent(userId);
+        if (summary == null) {
+            return;
+        }
+        synchronized (summary) {
+            summary.loaded = false;
+        }
+    }
+
+    // checkout empties the cart in its own transaction
+    @EventListener
+    public void onCheckoutCompleted(CheckoutCompletedEvent event) {
+        invalidate(event.getUserId());
+    }
+
+    // creating an empty summary is cheap -- carts are only read once its lock is held
+    private CartSummary summaryOf(int userId) {
+        return summariesByUser.get(userId, id -> new CartSummary());
+    }
+
+    // one user's cart -- product id -> line total in cents, and their sum
+    private static class CartSummary {
+        private final Map<Integer, Long> lineTotals = new HashMap<>();
+        private long totalCents;
+        // false until the cart has been loaded, and again once it is emptied
+        private boolean loaded;
+
+        private void reset(ShoppingCart cart) {
+            lineTotals.clear();
+            for (ShoppingCartItem item : cart.getItems().values()) {
+                lineTotals.put(item.getProductId(), item.getLineTotalCents());
+            }
+            totalCents = cart.getTotalCents();
+            loaded = true;
+        }
+
+        // same scale as ShoppingCart.getTotal() -- 0 for an empty cart, cents otherwise
+        private BigDecimal total() {
+            return lineTotals.isEmpty() ? BigDecimal.ZERO : BigDecimal.valueOf(totalCents, 2);
+        }
+
+        // item is the line as it is in the database now, or null if the product is no longer in the cart
+        private void apply(int productId, ShoppingCartItem item) {
+            Long previous = item == null
+                    ? lineTotals.remove(productId)
+                    : lineTotals.put(productId, item.getLineTotalCents());
+
+            if (previous != null) {
+                totalCents -= previous;
+            }
+            if (item != null) {
+                totalCents += item.getLineTotalCents();
+            }
+        }
+    }
+}
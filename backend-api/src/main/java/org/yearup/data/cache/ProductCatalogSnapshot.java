@@ -0,0 +1,144 @@
+package org.yearup.data.cache;
+
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// an immutable, point-in-time copy of the whole products table -- the products in it are read-only too
+// readers never lock - a write builds a new snapshot and swaps it in
+final class ProductCatalogSnapshot {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    // every product ordered by product_id -- same order MySQL returns rows in
+    private final List<Product> all;
+    private final Map<Integer, Product> byId;
+    private final Map<Integer, List<Product>> byCategory;
+    // subcategory keys are lower-cased because MySQL compares them case-insensitively
+    private final Map<String, List<Product>> bySubCategory;
+    // when the snapshot was built -- used to rebuild it after max-age
+    private final long loadedAtMillis;
+    // a new number for every snapshot built, reloaded or patched -- two snapshots never share one
+    private final long generation = GENERATIONS.incrementAndGet();
+
+    private ProductCatalogSnapshot(List<Product> products, long loadedAtMillis) {
+        // every reader shares these instances -- they can't be changed once they are in
+        List<Product> sorted = new ArrayList<>(products.size());
+        for (Product product : products) {
+            sorted.add(ReadOnlyProduct.of(product));
+        }
+        sorted.sort(Comparator.comparingInt(Product::getProductId));
+
+        Map<Integer, Product> ids = new HashMap<>();
+        Map<Integer, List<Product>> categories = new HashMap<>();
+        Map<String, List<Product>> subCategories = new HashMap<>();
+
+        for (Product product : sorted) {
+            ids.put(product.getProductId(), product);
+            categories.computeIfAbsent(product.getCategoryId(), k -> new ArrayList<>()).add(product);
+
+            if (product.getSubCategory() != null) {
+                subCategories.computeIfAbsent(subCategoryKey(product.getSubCategory()), k -> new ArrayList<>()).add(product);
+            }
+        }
+
+        this.all = List.copyOf(sorted);
+        this.byId = Map.copyOf(ids);
+        this.byCategory = freeze(categories);
+        this.bySubCategory = freeze(subCategories);
+        this.loadedAtMillis = loadedAtMillis;
+    }
+
+    static ProductCatalogSnapshot of(List<Product> products) {
+        return new ProductCatalogSnapshot(products, System.currentTimeMillis());
+    }
+
+    // returns a new snapshot with the changed products added or replaced and the removed ones left out
+    // one rebuild for the whole batch, and it keeps the original load time so max-age still forces a full rebuild
+    ProductCatalogSnapshot patched(Collection<Product> changed, Collection<Integer> removed) {
+        Map<Integer, Product> products = new HashMap<>(byId);
+        for (Product product : changed) {
+            products.put(product.getProductId(), product);
+        }
+        for (int productId : removed) {
+            products.remove(productId);
+        }
+        return new ProductCatalogSnapshot(new ArrayList<>(products.values()), loadedAtMillis);
+    }
+
+    boolean isOlderThan(long maxAgeMillis) {
+        return maxAgeMillis > 0 && System.currentTimeMillis() - loadedAtMillis > maxAgeMillis;
+    }
+
+    long getGeneration() {
+        return generation;
+    }
+
+    Product getById(int productId) {
+        return byId.get(productId);
+    }
+
+    List<Product> listByCategoryId(int categoryId) {
+        return byCategory.getOrDefault(categoryId, List.of());
+    }
+
+    List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory) {
+        boolean hasSubCategory = subCategory != null && !subCategory.isEmpty();
+
+        // start from the narrowest index that applies and filter the rest in memory
+        List<Product> candidates;
+        if (categoryId != null) {
+            candidates = listByCategoryId(categoryId);
+        } else if (hasSubCategory) {
+            candidates = bySubCategory.getOrDefault(subCategoryKey(subCategory), List.of());
+        } else {
+            candidates = all;
+        }
+
+        if (minPrice == null && maxPrice == null && !(hasSubCategory && categoryId != null)) {
+            return candidates;
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (Product product : candidates) {
+            if (minPrice != null && product.getPrice().compareTo(minPrice) < 0) continue;
+            if (maxPrice != null && product.getPrice().compareTo(maxPrice) > 0) continue;
+            if (hasSubCategory && !subCategory.equalsIgnoreCase(product.getSubCategory())) continue;
+
+            products.add(product);
+        }
+        return products;
+    }
+
+    // cuts one keyset page out of a list that is ordered by product_id
+    static ProductPage page(List<Product> products, int afterProductId, int limit) {
+        // binary search for the first product after the cursor
+        int low = 0;
+        int high = products.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (products.get(middle).getProductId() <= afterProductId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        // one extra row tells ProductPage whether there is a next page
+        int end = (int) Math.min(products.size(), (long) low + limit + 1);
+        return ProductPage.of(products.subList(low, end), limit);
+    }
+
+    private static String subCategoryKey(String subCategory) {
+        return subCategory.toLowerCase(Locale.ROOT);
+    }
+
+    private static <K> Map<K, List<Product>> freeze(Map<K, List<Product>> index) {
+        Map<K, List<Product>> frozen = new HashMap<>();
+        index.forEach((key, products) -> frozen.put(key, List.copyOf(products)));
+        return Map.copyOf(frozen);
+    }
+}
@@ -0,0 +1,70 @@
+package org.yearup.data.cache;
+
+import org.yearup.models.Product;
+
+import java.math.BigDecimal;
+
+// a product held in the catalog snapshot -- the same instance is handed to every request that reads it,
+// so a caller changing it would change it for everyone. the setters throw instead
+// copy it with new Product(...) to change anything
+final class ReadOnlyProduct extends Product {
+
+    private ReadOnlyProduct(Product product) {
+        super(product.getProductId(), product.getName(), product.getPrice(), product.getCategoryId(),
+                product.getDescription(), product.getSubCategory(), product.getStock(), product.isFeatured(),
+                product.getImageUrl());
+    }
+
+    static Product of(Product product) {
+        return product instanceof ReadOnlyProduct ? product : new ReadOnlyProduct(product);
+    }
+
+    @Override
+    public void setProductId(int productId) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setName(String name) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setPrice(BigDecimal price) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setCategoryId(int categoryId) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setDescription(String description) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setSubCategory(String subCategory) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setStock(int stock) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setFeatured(boolean featured) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setImageUrl(String imageUrl) {
+        throw readOnly();
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Products from the catalog cache are shared and can't be changed");
+    }
+}
@@ -0,0 +1,475 @@
+package org.yearup.data.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.events.CheckoutCompletedEvent;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// keeps active carts in memory and writes them to MySQL in batches instead of on every click
+// repeated changes to the same (user, product) collapse into one row write per flush
+// carts are flushed every flush interval, before checkout and on shutdown --
+// a crash can lose at most one flush interval of cart changes
+// while a cart is being checked out nothing is written for it, and afterwards only what was added on top
+// of what the database held is kept -- the rest was just bought
+// off by default, turn it on with cart.write-behind.enabled=true
+@Component
+@Primary
+@ConditionalOnProperty(name = "cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindShoppingCartDao implements ShoppingCartDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WriteBehindShoppingCartDao.class);
+
+    // a power of two so a user id picks its stripe with a mask
+    private static final int STRIPES = 64;
+
+    // the database backed dao -- carts are loaded from it on first use and flushed to it
+    private final ShoppingCartDao delegate;
+    // product details for the carts we hand out -- in memory when the catalog cache is on
+    private final ProductDao productDao;
+    // clean carts that nobody touched for this long are dropped from memory
+    private final long idleMillis;
+
+    // user id -> cart, only read or changed while holding the user's stripe lock
+    private final Map<Integer, CartState> carts = new ConcurrentHashMap<>();
+    // users with changes that haven't been written yet
+    private final Set<Integer> dirtyUsers = ConcurrentHashMap.newKeySet();
+    // users share a lock per stripe -- carts of different users rarely wait on each other
+    private final Object[] stripes = new Object[STRIPES];
+    // carts removed from memory per stripe -- a cart read from the database while one was removed may be stale
+    private final AtomicLongArray removals = new AtomicLongArray(STRIPES);
+    // one flush at a time, so an older copy of a line can never overwrite a newer one
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // user id -> checkouts in progress -- their carts are skipped by flushes until checkout is done with the rows
+    private final Map<Integer, Integer> checkingOut = new ConcurrentHashMap<>();
+
+    public WriteBehindShoppingCartDao(@Qualifier("mySqlShoppingCartDao") ShoppingCartDao delegate,
+                                      ProductDao productDao,
+                                      @Value("${cart.write-behind.idle-seconds:1800}") long idleSeconds) {
+        this.delegate = delegate;
+        this.productDao = productDao;
+        this.idleMillis = idleSeconds * 1000;
+
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    @Override
+    public ShoppingCart getByUserId(int userId) {
+        Map<Integer, Integer> quantities = withCart(userId, cart -> new HashMap<>(cart.quantities));
+
+        // build the items outside the lock -- product details come from the catalog, not the database
+        ShoppingCart cart = new ShoppingCart();
+        for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+            ShoppingCartItem item = item(line.getKey(), line.getValue());
+            if (item != null) {
+                cart.add(item);
+            }
+        }
+        return cart;
+    }
+
+    @Override
+    public ShoppingCartItem getItem(int userId, int productId) {
+        Integer quantity = withCart(userId, cart -> cart.quantities.get(productId));
+        return quantity == null ? null : item(productId, quantity);
+    }
+
+    @Override
+    public void addProduct(int userId, int productId, int quantity) {
+        // the database would reject this with a foreign key error, but only at flush time
+        if (productDao.getById(productId) == null) {
+            throw new IllegalArgumentException("Product " + productId + " does not exist");
+        }
+
+        changeCart(userId, cart -> {
+            cart.quantities.merge(productId, quantity, Integer::sum);
+            markDirty(userId, cart, productId);
+        });
+    }
+
+    @Override
+    public void addProducts(int userId, Map<Integer, Integer> quantities) {
+        // check every product first so a bad id leaves the cart untouched
+        for (int productId : quantities.keySet()) {
+            if (productDao.getById(productId) == null) {
+                throw new IllegalArgumentException("Product " + productId + " does not exist");
+            }
+        }
+
+        changeCart(userId, cart -> {
+            for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                cart.quantities.merge(line.getKey(), line.getValue(), Integer::sum);
+                markDirty(userId, cart, line.getKey());
+            }
+        });
+    }
+
+    @Override
+    public void updateProductQuantity(int userId, int productId, int quantity) {
+        changeCart(userId, cart -> {
+            // same as the UPDATE -- a product that isn't in the cart is left alone
+            if (cart.quantities.containsKey(productId)) {
+                cart.quantities.put(productId, quantity);
+                markDirty(userId, cart, productId);
+            }
+        });
+    }
+
+    @Override
+    public void clearCart(int userId) {
+        changeCart(userId, cart -> {
+            // every line becomes a delete at the next flush
+            for (int productId : cart.quantities.keySet()) {
+                cart.dirty.add(productId);
+            }
+            cart.quantities.clear();
+            dirtyUsers.add(userId);
+        });
+    }
+
+    @Override
+    public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser) {
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : quantitiesByUser.entrySet()) {
+            int userId = entry.getKey();
+
+            changeCart(userId, cart -> {
+                for (Map.Entry<Integer, Integer> line : entry.getValue().entrySet()) {
+                    if (line.getValue() > 0) {
+                        cart.quantities.put(line.getKey(), line.getValue());
+                    } else {
+                        cart.quantities.remove(line.getKey());
+                    }
+                    markDirty(userId, cart, line.getKey());
+                }
+            });
+        }
+    }
+
+    @Override
+    public void flush(int userId) {
+        flushLock.lock();
+        try {
+            flushUser(userId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // flushes and marks the cart as checking out in one go -- no other flush can get in between
+    // a second checkout of the same cart doesn't write again, the first one may already be reading the rows
+    @Override
+    public void prepareCheckout(int userId) {
+        flushLock.lock();
+        try {
+            if (!checkingOut.containsKey(userId)) {
+                flushUser(userId);
+            }
+            checkingOut.merge(userId, 1, Integer::sum);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public void checkoutFinished(int userId) {
+        checkingOut.computeIfPresent(userId, (id, count) -> count == 1 ? null : count - 1);
+    }
+
+    // writes every dirty cart in one batch, then drops clean carts that have gone idle
+    // carts that can't be written are queued again without holding back the others
+    @Scheduled(fixedDelayString = "${cart.write-behind.flush-interval-millis:1000}")
+    public void flushAll() {
+        flushLock.lock();
+        try {
+            Map<Integer, Map<Integer, Integer>> batch = new HashMap<>();
+            for (Integer userId : dirtyUsers) {
+                // stays dirty -- written at the first flush after checkout is done with it
+                if (checkingOut.containsKey(userId)) {
+                    continue;
+                }
+                dirtyUsers.remove(userId);
+                Map<Integer, Integer> lines = takeDirtyLines(userId);
+                if (!lines.isEmpty()) {
+                    batch.put(userId, lines);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                Set<Integer> failed = write(batch);
+                LOG.debug("flushed {} shopping carts, {} failed", batch.size() - failed.size(), failed.size());
+            }
+            evictIdleCarts();
+        } catch (RuntimeException e) {
+            LOG.error("Failed to flush shopping carts", e);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // last chance to write what is still in memory
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    // checkout bought and deleted exactly the rows the database held -- nothing was written since prepareCheckout
+    // so what is left of each line is whatever was added on top of what we last wrote or read
+    @EventListener
+    public void onCheckoutCompleted(CheckoutCompletedEvent event) {
+        int userId = event.getUserId();
+
+        synchronized (stripe(userId)) {
+            // counted even with no cart in memory -- a read that started before the checkout has the old rows
+            removals.incrementAndGet(stripeIndex(userId));
+
+            CartState cart = carts.get(userId);
+            if (cart == null) {
+                return;
+            }
+
+            Map<Integer, Integer> left = new HashMap<>();
+            for (Map.Entry<Integer, Integer> line : cart.quantities.entrySet()) {
+                int added = line.getValue() - cart.flushed.getOrDefault(line.getKey(), 0);
+                if (added > 0) {
+                    left.put(line.getKey(), added);
+                }
+            }
+
+            // the rows are gone, so every line that is left has to be inserted again
+            cart.quantities.clear();
+            cart.quantities.putAll(left);
+            cart.flushed.clear();
+            cart.dirty.clear();
+            cart.dirty.addAll(left.keySet());
+
+            if (cart.dirty.isEmpty()) {
+                carts.remove(userId);
+            } else {
+                dirtyUsers.add(userId);
+            }
+        }
+    }
+
+    // must be called while holding flushLock
+    private void flushUser(int userId) {
+        dirtyUsers.remove(userId);
+        Map<Integer, Integer> lines = takeDirtyLines(userId);
+        if (!lines.isEmpty() && !write(Map.of(userId, lines)).isEmpty()) {
+            // checkout must not go ahead with lines the database doesn't have
+            throw new IllegalStateException("Could not save the shopping cart of user " + userId);
+        }
+    }
+
+    private Object stripe(int userId) {
+        return stripes[stripeIndex(userId)];
+    }
+
+    private static int stripeIndex(int userId) {
+        return userId & (STRIPES - 1);
+    }
+
+    private void changeCart(int userId, Consumer<CartState> change) {
+        withCart(userId, cart -> {
+            change.accept(cart);
+            return null;
+        });
+    }
+
+    // runs the action on the user's cart while holding its stripe lock
+    // a cart that isn't in memory yet is read from the database before taking the lock,
+    // so a slow read only holds up this user and not everyone else on the stripe
+    private <T> T withCart(int userId, Function<CartState, T> action) {
+        while (true) {
+            long removalsBeforeRead = removals.get(stripeIndex(userId));
+            CartState read = carts.containsKey(userId) ? null : read(userId);
+
+            synchronized (stripe(userId)) {
+                CartState cart = carts.get(userId);
+                if (cart == null) {
+                    // gone again since we looked, or a checkout may have emptied the rows we read -- read again
+                    if (read == null || removals.get(stripeIndex(userId)) != removalsBeforeRead) {
+                        continue;
+                    }
+                    cart = read;
+                    carts.put(userId, cart);
+                }
+                cart.lastUsedMillis = System.currentTimeMillis();
+                return action.apply(cart);
+            }
+        }
+    }
+
+    private CartState read(int userId) {
+        CartState cart = new CartState();
+        for (ShoppingCartItem item : delegate.getByUserId(userId).getItems().values()) {
+            cart.quantities.put(item.getProductId(), item.getQuantity());
+        }
+        cart.flushed.putAll(cart.quantities);
+        return cart;
+    }
+
+    // must be called while holding the user's stripe lock
+    private void markDirty(int userId, CartState cart, int productId) {
+        cart.dirty.add(productId);
+        dirtyUsers.add(userId);
+    }
+
+    // copies the user's unwritten lines (0 = delete) and marks them clean
+    private Map<Integer, Integer> takeDirtyLines(int userId) {
+        synchronized (stripe(userId)) {
+            CartState cart = carts.get(userId);
+            if (cart == null || cart.dirty.isEmpty()) {
+                return Map.of();
+            }
+
+            Map<Integer, Integer> lines = new HashMap<>();
+            for (int productId : cart.dirty) {
+                lines.put(productId, cart.quantities.getOrDefault(productId, 0));
+            }
+            cart.dirty.clear();
+            return lines;
+        }
+    }
+
+    // writes the batch in one transaction -- if that fails, one user at a time, so a cart that can't be
+    // written doesn't hold back everyone else's
+    // returns the users whose lines were queued again for the next flush
+    private Set<Integer> write(Map<Integer, Map<Integer, Integer>> batch) {
+        try {
+            delegate.saveQuantities(batch);
+            batch.forEach(this::written);
+            return Set.of();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to flush {} shopping carts together, writing them one at a time", batch.size(), e);
+        }
+
+        Set<Integer> failed = new HashSet<>();
+        for (Map.Entry<Integer, Map<Integer, Integer>> entry : batch.entrySet()) {
+            int userId = entry.getKey();
+            Map<Integer, Integer> lines = withoutDeletedProducts(userId, entry.getValue());
+            if (lines.isEmpty()) {
+                continue;
+            }
+
+            try {
+                delegate.saveQuantities(Map.of(userId, lines));
+                written(userId, lines);
+            } catch (RuntimeException e) {
+                LOG.error("Failed to flush the shopping cart of user {}", userId, e);
+                requeue(userId, lines.keySet());
+                failed.add(userId);
+            }
+        }
+        return failed;
+    }
+
+    // a line for a product that was deleted can never be inserted -- drop it instead of retrying it forever
+    private Map<Integer, Integer> withoutDeletedProducts(int userId, Map<Integer, Integer> lines) {
+        Map<Integer, Integer> writable = new HashMap<>();
+        for (Map.Entry<Integer, Integer> line : lines.entrySet()) {
+            int productId = line.getKey();
+            if (line.getValue() > 0 && productDao.getById(productId) == null) {
+                LOG.warn("Dropping product {} from the shopping cart of user {}, it no longer exists", productId, userId);
+                synchronized (stripe(userId)) {
+                    CartState cart = carts.get(userId);
+                    if (cart != null) {
+                        cart.quantities.remove(productId);
+                        cart.flushed.remove(productId);
+                        cart.dirty.remove(productId);
+                    }
+                }
+            } else {
+                writable.put(productId, line.getValue());
+            }
+        }
+        return writable;
+    }
+
+    // the database now holds these lines -- what checkout would buy
+    private void written(int userId, Map<Integer, Integer> lines) {
+        synchronized (stripe(userId)) {
+            CartState cart = carts.get(userId);
+            if (cart == null) {
+                return;
+            }
+            lines.forEach((productId, quantity) -> {
+                if (quantity > 0) {
+                    cart.flushed.put(productId, quantity);
+                } else {
+                    cart.flushed.remove(productId);
+                }
+            });
+        }
+    }
+
+    // put the lines back so they are written next time
+    private void requeue(int userId, Set<Integer> productIds) {
+        synchronized (stripe(userId)) {
+            CartState cart = carts.get(userId);
+            if (cart != null) {
+                cart.dirty.addAll(productIds);
+                dirtyUsers.add(userId);
+            }
+        }
+    }
+
+    private void evictIdleCarts() {
+        long now = System.currentTimeMillis();
+
+        for (Integer userId : carts.keySet()) {
+            synchronized (stripe(userId)) {
+                CartState cart = carts.get(userId);
+                if (cart != null && cart.dirty.isEmpty() && now - cart.lastUsedMillis > idleMillis) {
+                    carts.remove(userId);
+                    removals.incrementAndGet(stripeIndex(userId));
+                }
+            }
+        }
+    }
+
+    private ShoppingCartItem item(int productId, int quantity) {
+        Product product = productDao.getById(productId);
+        // a deleted product drops out of the cart join too
+        if (product == null) {
+            return null;
+        }
+
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(product);
+        item.setQuantity(quantity);
+        item.setDiscountPercent(BigDecimal.ZERO);
+        return item;
+    }
+
+    // one user's cart as we know it
+    private static class CartState {
+        // product id -> quantity, what the cart looks like including unwritten changes
+        private final Map<Integer, Integer> quantities = new HashMap<>();
+        // product ids changed since the last flush
+        private final Set<Integer> dirty = new HashSet<>();
+        // product id -> quantity the database holds, as last read or written
+        private final Map<Integer, Integer> flushed = new HashMap<>();
+        private long lastUsedMillis;
+    }
+}
@@ -0,0 +1,258 @@
+package org.yearup.data.mysql;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.yearup.data.CheckoutDao;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class MySqlCheckoutDao extends MySqlDaoBase implements CheckoutDao {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MySqlCheckoutDao.class);
+
+    // one timer per checkout phase -- shows which step gets slower as carts grow
+    private final Timer readCartTimer;
+    private final Timer reserveStockTimer;
+    private final Timer orderTimer;
+    private final Timer lineItemsTimer;
+    private final Timer clearCartTimer;
+    private final Timer commitTimer;
+
+    public MySqlCheckoutDao(DataSource dataSource, MeterRegistry meterRegistry) {
+        super(dataSource);
+        this.readCartTimer = phaseTimer(meterRegistry, "read_cart");
+        this.reserveStockTimer = phaseTimer(meterRegistry, "reserve_stock");
+        this.orderTimer = phaseTimer(meterRegistry, "order");
+        this.lineItemsTimer = phaseTimer(meterRegistry, "line_items");
+        this.clearCartTimer = phaseTimer(meterRegistry, "clear_cart");
+        this.commitTimer = phaseTimer(meterRegistry, "commit");
+    }
+
+    @Override
+    public ShoppingCart checkout(Order order) {
+
+        // one connection for the whole checkout -- nothing is visible to anyone else until commit
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+
+            try {
+                long start = System.nanoTime();
+
+                // the cart is read and locked in the same transaction that empties it,
+                // so a line added or changed meanwhile is either in this order or still in the cart afterwards
+                ShoppingCart cart = lockCart(connection, order.getUserId());
+                long readDone = System.nanoTime();
+
+                if (cart.getItems().isEmpty()) {
+                    connection.rollback();
+                    return cart;
+                }
+                Collection<ShoppingCartItem> items = cart.getItems().values();
+                order.setShippingAmount(cart.getTotal());
+
+                // stock goes first -- the cart read left the product rows unlocked, so the first lock taken on them
+                // is the exclusive one from the UPDATE, in product_id order. the line item foreign keys then only ask
+                // for locks we already hold. inserting first would take shared locks, and two checkouts upgrading
+                // those to exclusive ones deadlock
+                reserveStock(connection, items);
+                long reserveDone = System.nanoTime();
+
+                int orderId = insertOrder(connection, order);
+                long orderDone = System.nanoTime();
+
+                insertLineItems(connection, orderId, items);
+                long lineItemsDone = System.nanoTime();
+
+                clearCart(connection, order.getUserId());
+                long clearDone = System.nanoTime();
+
+                connection.commit();
+                long commitDone = System.nanoTime();
+
+                readCartTimer.record(readDone - start, TimeUnit.NANOSECONDS);
+                reserveStockTimer.record(reserveDone - readDone, TimeUnit.NANOSECONDS);
+                orderTimer.record(orderDone - reserveDone, TimeUnit.NANOSECONDS);
+                lineItemsTimer.record(lineItemsDone - orderDone, TimeUnit.NANOSECONDS);
+                clearCartTimer.record(clearDone - lineItemsDone, TimeUnit.NANOSECONDS);
+                commitTimer.record(commitDone - clearDone, TimeUnit.NANOSECONDS);
+
+                LOG.debug("checkout of order {} with {} items: read cart {} us, reserve stock {} us, order {} us, line items {} us, clear cart {} us, commit {} us",
+                        orderId, items.size(),
+                        (readDone - start) / 1000, (reserveDone - readDone) / 1000, (orderDone - reserveDone) / 1000,
+                        (lineItemsDone - orderDone) / 1000, (clearDone - lineItemsDone) / 1000,
+                        (commitDone - clearDone) / 1000);
+
+                order.setOrderId(orderId);
+                return cart;
+            } catch (SQLException | RuntimeException e) {
+                // undo the order, line items and any stock already reserved -- the cart is left as it was
+                connection.rollback();
+                throw e;
+            } finally {
+                // the connection goes back to the pool, so put it back the way we found it
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error checking out cart for user " + order.getUserId(), e);
+        }
+    }
+
+    // reads the user's cart and locks its rows until the checkout commits or rolls back
+    // a cart change made meanwhile waits for the checkout instead of slipping in between the read and the delete
+    // only the cart rows are locked -- the joined product rows are read without a lock, so other checkouts and
+    // product updates aren't held up behind this one. their stock is checked again by reserveStock
+    private ShoppingCart lockCart(Connection connection, int userId) throws SQLException {
+        String sql = """
+                SELECT
+                    shopping_cart.quantity,
+                    products.product_id,
+                    products.name,
+                    products.price,
+                    products.category_id,
+                    products.description,
+                    products.subcategory,
+                    products.stock,
+                    products.featured,
+                    products.image_url
+                FROM shopping_cart
+                JOIN products ON shopping_cart.product_id = products.product_id
+                WHERE shopping_cart.user_id = ?
+                ORDER BY shopping_cart.product_id
+                FOR UPDATE OF shopping_cart
+                """;
+
+        ShoppingCart cart = new ShoppingCart();
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, userId);
+
+            try (ResultSet row = preparedStatement.executeQuery()) {
+                while (row.next()) {
+                    cart.add(MySqlShoppingCartDao.mapRow(row));
+                }
+            }
+        }
+        return cart;
+    }
+
+    private int insertOrder(Connection connection, Order order) throws SQLException {
+        String sql = """
+                INSERT INTO orders
+                (user_id, date, address, city, state, zip, shipping_amount)
+                VALUES (?,?,?,?,?,?,?)
+                """;
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            preparedStatement.setInt(1, order.getUserId());
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(order.getDate()));
+            preparedStatement.setString(3, order.getAddress());
+            preparedStatement.setString(4, order.getCity());
+            preparedStatement.setString(5, order.getState());
+            preparedStatement.setString(6, order.getZip());
+            preparedStatement.setBigDecimal(7, order.getShippingAmount());
+
+            preparedStatement.executeUpdate();
+
+            try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    return generatedKeys.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("Failed to get generated orderId");
+    }
+
+    private void insertLineItems(Connection connection, int orderId, Collection<ShoppingCartItem> items) throws SQLException {
+        String sql = """
+                INSERT INTO order_line_items
+                (order_id, product_id, sales_price, quantity, discount)
+                VALUES (?,?,?,?,?)
+                """;
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            // queue every line item and send them together
+            // with rewriteBatchedStatements=true the driver turns the batch into one multi-row INSERT
+            for (ShoppingCartItem item : items) {
+                preparedStatement.setInt(1, orderId);
+                preparedStatement.setInt(2, item.getProductId());
+                preparedStatement.setBigDecimal(3, item.getProduct().getPrice());
+                preparedStatement.setInt(4, item.getQuantity());
+                preparedStatement.setBigDecimal(5, item.getDiscountPercent());
+                preparedStatement.addBatch();
+            }
+
+            preparedStatement.executeBatch();
+        }
+    }
+
+    private void clearCart(Connection connection, int userId) throws SQLException {
+        String sql = """
+                DELETE FROM shopping_cart
+                WHERE user_id = ?
+                """;
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.executeUpdate();
+        }
+    }
+
+    private void reserveStock(Connection connection, Collection<ShoppingCartItem> items) throws SQLException {
+        // only takes stock if there is enough left -- no read-then-write race and no table lock
+        String sql = """
+                UPDATE products
+                SET stock = stock - ?
+                WHERE product_id = ? AND stock >= ?
+                """;
+
+        // every checkout locks product rows in the same (product_id) order, so two checkouts can't deadlock
+        List<ShoppingCartItem> ordered = new ArrayList<>(items);
+        ordered.sort(Comparator.comparingInt(ShoppingCartItem::getProductId));
+
+        try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            for (ShoppingCartItem item : ordered) {
+                preparedStatement.setInt(1, item.getQuantity());
+                preparedStatement.setInt(2, item.getProductId());
+                preparedStatement.setInt(3, item.getQuantity());
+                preparedStatement.addBatch();
+            }
+
+            int[] rowsUpdated = preparedStatement.executeBatch();
+
+            // a row that wasn't updated didn't have enough stock
+            List<Integer> soldOut = new ArrayList<>();
+            List<String> details = new ArrayList<>();
+            for (int i = 0; i < rowsUpdated.length; i++) {
+                if (rowsUpdated[i] == 0) {
+                    ShoppingCartItem item = ordered.get(i);
+                    soldOut.add(item.getProductId());
+                    details.add(item.getProduct().getName() + " (product " + item.getProductId() + ", requested " + item.getQuantity() + ")");
+                }
+            }
+
+            if (!soldOut.isEmpty()) {
+                throw new InsufficientStockException("Not enough stock for: " + String.join(", ", details), soldOut);
+            }
+        }
+    }
+
+    private static Timer phaseTimer(MeterRegistry meterRegistry, String phase) {
+        return Timer.builder("checkout.phase")
+                .description("Time spent in each step of the checkout transaction")
+                .tag("phase", phase)
+                .register(meterRegistry);
+    }
+}
@@ -1,20 +1,39 @@
 package org.yearup.data.mysql;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 public abstract class MySqlDaoBase
 {
     private DataSource dataSource;
+    // time each DAO waits for a connection -- datasource.connection.acquire has the same for the whole pool
+    // the global registry forwards to spring's registry, and records nothing when the DAO is used outside spring
+    private final Timer connectionTimer;
 
     public MySqlDaoBase(DataSource dataSource)
     {
         this.dataSource = dataSource;
+        this.connectionTimer = Timer.builder("dao.connection.acquire")
+                .description("Time a DAO waits to get a connection from the pool")
+                .tag("dao", getClass().getSimpleName())
+                .register(Metrics.globalRegistry);
     }
 
     protected Connection getConnection() throws SQLException
     {
-        return dataSource.getConnection();
+        long start = System.nanoTime();
+        try
+        {
+            return dataSource.getConnection();
+        }
+        finally
+        {
+            connectionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
     }
 }
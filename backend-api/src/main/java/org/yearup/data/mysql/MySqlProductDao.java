@@ -1,7 +1,10 @@
 package org.yearup.data.mysql;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
 import org.yearup.data.ProductDao;
 
 import javax.sql.DataSource;
@@ -9,11 +12,24 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Component
 public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
+    // Integer.MIN_VALUE tells Connector/J to stream rows one at a time instead of buffering the whole result
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    // fetch size used by streamSearch
+    private final int streamFetchSize;
+
     public MySqlProductDao(DataSource dataSource) {
+        this(dataSource, STREAMING_FETCH_SIZE);
+    }
+
+    @Autowired
+    public MySqlProductDao(DataSource dataSource, @Value("${products.stream.fetch-size:" + STREAMING_FETCH_SIZE + "}") int streamFetchSize) {
         super(dataSource);
+        this.streamFetchSize = streamFetchSize;
     }
 
 
@@ -22,41 +38,15 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         // create an empty list that will hold the results
         List<Product> products = new ArrayList<>();
 
-        // SQL query with optional filters
-        // each filter is written so it is ignored if the parameter is null or empty
-        String sql = """
-                SELECT *
-                FROM products
-                WHERE (? IS NULL OR category_id = ?)
-                  AND (? IS NULL OR price >= ?)
-                  AND (? IS NULL OR price <= ?)
-                  AND (? = '' OR subcategory = ?)
-                """;
-
-        // strings behave diff from int and cant be ignored if null directly
-        // if subcat is null -- convert to empty string
-        subCategory = subCategory == null ? "" : subCategory;
-
-        try (Connection connection = getConnection()) {
-            PreparedStatement statement = connection.prepareStatement(sql);
-
-            // category
-            statement.setObject(1, categoryId); // for IS NULL check
-            statement.setObject(2, categoryId); // for the catId comparison
+        // only the filters that were supplied end up in the WHERE clause
+        // so MySQL can use the (category_id, price) and (category_id, subcategory) indexes
+        ProductSearchQuery query = ProductSearchQuery.of(categoryId, minPrice, maxPrice, subCategory);
 
-            // min price
-            // If maxPrice is NULL → filter is ignored
-            statement.setObject(3, minPrice); // for IS NULL check
-            statement.setObject(4, minPrice); // for the price comparison
-
-            // max price
-            statement.setObject(5, maxPrice);
-            statement.setObject(6, maxPrice);
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(query.sql())) {
 
-            // subcategory
-            // Empty string ("") means "ignore this filter"
-            statement.setString(7, subCategory);
-            statement.setString(8, subCategory);
+            // bind the value of every supplied filter in order
+            query.bind(statement);
 
             //execute query
             // database runs and returns matching rows
@@ -80,13 +70,86 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         return products;
     }
 
+    @Override
+    public ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                  int afterProductId, int limit) {
+        List<Product> products = new ArrayList<>();
+
+        // ask for one row more than the page size -- if it comes back there is a next page
+        ProductSearchQuery query = ProductSearchQuery.page(categoryId, minPrice, maxPrice, subCategory, afterProductId, limit + 1);
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(query.sql())) {
+
+            query.bind(statement);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    products.add(mapRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error searching products after id " + afterProductId, e);
+        }
+
+        return ProductPage.of(products, limit);
+    }
+
+    @Override
+    public ProductPage searchListingPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                         int afterProductId, int limit) {
+        List<Product> products = new ArrayList<>();
+
+        // same page as searchPage, but the description column is never read
+        ProductSearchQuery query = ProductSearchQuery.listingPage(categoryId, minPrice, maxPrice, subCategory, afterProductId, limit + 1);
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(query.sql())) {
+
+            query.bind(statement);
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    products.add(mapListingRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error listing products after id " + afterProductId, e);
+        }
+
+        return ProductPage.of(products, limit);
+    }
+
+    @Override
+    public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                             Consumer<Product> consumer) {
+        ProductSearchQuery query = ProductSearchQuery.of(categoryId, minPrice, maxPrice, subCategory);
+
+        // forward only + read only is what lets the driver stream instead of loading every row up front
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(query.sql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            statement.setFetchSize(streamFetchSize);
+            query.bind(statement);
+
+            try (ResultSet row = statement.executeQuery()) {
+                // each product is handed off and then forgotten -- only one row is in memory at a time
+                while (row.next()) {
+                    consumer.accept(mapRow(row));
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error streaming products", e);
+        }
+    }
+
     @Override
     public List<Product> listByCategoryId(int categoryId) {
         // create a list that will hold products for this category
         // starts with an empty list
         List<Product> products = new ArrayList<>();
 
-        String sql = "SELECT * FROM products " + " WHERE category_id = ? ";
+        String sql = "SELECT " + ProductSearchQuery.COLUMNS + " FROM products WHERE category_id = ?";
 
         try (Connection connection = getConnection();
             PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -112,7 +175,7 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     @Override
     public Product getById(int productId) {
         // get one product by pk
-        String sql = "SELECT * FROM products WHERE product_id = ?";
+        String sql = "SELECT " + ProductSearchQuery.COLUMNS + " FROM products WHERE product_id = ?";
 
         try (Connection connection = getConnection();
             PreparedStatement statement = connection.prepareStatement(sql))
@@ -252,6 +315,13 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
     }
 
     protected static Product mapRow(ResultSet row) throws SQLException {
+        Product product = mapListingRow(row);
+        product.setDescription(row.getString("description"));
+        return product;
+    }
+
+    // a row selected with ProductSearchQuery.LISTING_COLUMNS -- the description stays null
+    protected static Product mapListingRow(ResultSet row) throws SQLException {
         // create an empty product object -- just like a container -- with no data
         Product product = new Product();
 
@@ -262,7 +332,6 @@ public class MySqlProductDao extends MySqlDaoBase implements ProductDao {
         product.setName(row.getString("name"));
         product.setPrice(row.getBigDecimal("price"));
         product.setCategoryId(row.getInt("category_id"));
-        product.setDescription(row.getString("description"));
         product.setSubCategory(row.getString("subcategory"));
         product.setStock(row.getInt("stock"));
         product.setFeatured(row.getBoolean("featured"));
@@ -13,6 +13,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Component
 public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDao {
@@ -62,32 +64,8 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
                 // loop through each row returned from the database
                 // each loop turns 1 database row ( each product user added ) - into 1 shopping cart item and puts it in the shopping cart
                 while (row.next()) {
-
-                    // build's a product obj from the current database row
-                    Product product = new Product(
-                            row.getInt("product_id"),
-                            row.getString("name"),
-                            row.getBigDecimal("price"),
-                            row.getInt("category_id"),
-                            row.getString("description"),
-                            row.getString("subcategory"),
-                            row.getInt("stock"),
-                            row.getBoolean("featured"),
-                            row.getString("image_url")
-                    );
-
-                    // create one line time for the shopping cart
-                    // create a shopping cart for this product
-                    ShoppingCartItem item = new ShoppingCartItem();
-                    // attach the product to the cart item
-                    item.setProduct(product);
-                    // set the quanity from the shopping cart table
-                    item.setQuantity(row.getInt("quantity"));
-                    // defaults to zero - no discounts
-                    item.setDiscountPercent(BigDecimal.ZERO);
-
                     // add item to shopping cart
-                    cart.add(item);
+                    cart.add(mapRow(row));
                 }
             }
         } catch (SQLException e) {
@@ -98,44 +76,98 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
     }
 
     @Override
-    public void addProduct(int userId, int productId) {
+    public ShoppingCartItem getItem(int userId, int productId) {
 
-        // increse quantity if product already exists in cart
-        String updateSql = """
-                UPDATE shopping_cart
-                SET quantity = quantity + 1 
-                WHERE user_id = ? AND product_id = ?
-                """;
-        // insert product if it does not exist in cart
-        String insertSql = """
-                INSERT INTO shopping_cart ( user_id, product_id, quantity)
-                VALUES(?,?,1)
+        // same join as getByUserId but for one row -- both keys are the primary key, so this is a single index lookup
+        String sql = """
+                SELECT 
+                    shopping_cart.quantity,
+                    products.product_id,
+                    products.name,
+                    products.price,
+                    products.category_id,
+                    products.description,
+                    products.subcategory,
+                    products.stock,
+                    products.featured,
+                    products.image_url
+                                FROM shopping_cart
+                                JOIN products ON shopping_cart.product_id = products.product_id
+                                WHERE shopping_cart.user_id = ? AND shopping_cart.product_id = ?
                 """;
 
-        try (Connection connection = getConnection()) {
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, productId);
+
+            try (ResultSet row = preparedStatement.executeQuery()) {
+                // no row means the product isn't in the cart
+                return row.next() ? mapRow(row) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load cart item " + productId + " for user " + userId, e);
+        }
+    }
+
+    @Override
+    public void addProduct(int userId, int productId, int quantity) {
+
+        // one statement for both cases -- inserts the row, or adds to the quantity if (user_id, product_id) is already there
+        // the database does it atomically, so two adds at the same time can't both try to insert
+        String sql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                VALUES (?,?,?)
+                ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)
+                """;
 
-            try (PreparedStatement updateStament = connection.prepareStatement(updateSql)) {
-                // bind values for the UPDATE statment
-                updateStament.setInt(1, userId);
-                updateStament.setInt(2, productId);
+        try (Connection connection = getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            preparedStatement.setInt(1, userId);
+            preparedStatement.setInt(2, productId);
+            preparedStatement.setInt(3, quantity);
 
-                // execute the update and store how many rows got updated
-                int rowsUpdated = updateStament.executeUpdate();
+            preparedStatement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to add product to cart", e);
+        }
+    }
 
-                // if no rows updated, the product was not in the cart
-                if (rowsUpdated == 0) {
+    @Override
+    public void addProducts(int userId, Map<Integer, Integer> quantities) {
 
-                    // insert a new cart record with quantity = 1 only if needed - meaning no product was in the cart
-                    try (PreparedStatement insertStatement = connection.prepareStatement(insertSql)) {
+        // the same upsert as addProduct, sent as one batch in one transaction
+        String sql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                VALUES (?,?,?)
+                ON DUPLICATE KEY UPDATE quantity = quantity + VALUES(quantity)
+                """;
 
-                        insertStatement.setInt(1, userId);
-                        insertStatement.setInt(2, productId);
-                        insertStatement.executeUpdate();
-                    }
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                // product_id order so two requests for the same cart lock rows in the same order
+                for (Map.Entry<Integer, Integer> line : new TreeMap<>(quantities).entrySet()) {
+                    preparedStatement.setInt(1, userId);
+                    preparedStatement.setInt(2, line.getKey());
+                    preparedStatement.setInt(3, line.getValue());
+                    preparedStatement.addBatch();
                 }
+
+                // with rewriteBatchedStatements=true the driver sends this as one multi-row INSERT
+                preparedStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                // a bad product id fails the whole batch -- the cart is left as it was
+                connection.rollback();
+                throw e;
+            } finally {
+                // the connection goes back to the pool, so put it back the way we found it
+                connection.setAutoCommit(true);
             }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to add product to cart", e);
+            throw new RuntimeException("Failed to add products to cart", e);
         }
     }
 
@@ -185,5 +217,84 @@ public class MySqlShoppingCartDao extends MySqlDaoBase implements ShoppingCartDa
 
     }
 
+    @Override
+    public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser) {
+
+        // sets the quantity outright -- the caller already worked out the final number
+        String upsertSql = """
+                INSERT INTO shopping_cart (user_id, product_id, quantity)
+                VALUES (?,?,?)
+                ON DUPLICATE KEY UPDATE quantity = VALUES(quantity)
+                """;
+        String deleteSql = """
+                DELETE FROM shopping_cart
+                WHERE user_id = ? AND product_id = ?
+                """;
+
+        try (Connection connection = getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement upsertStatement = connection.prepareStatement(upsertSql);
+                 PreparedStatement deleteStatement = connection.prepareStatement(deleteSql)) {
+
+                // rows are written in (user_id, product_id) order so two writers always lock in the same order
+                for (Map.Entry<Integer, Map<Integer, Integer>> cart : new TreeMap<>(quantitiesByUser).entrySet()) {
+                    for (Map.Entry<Integer, Integer> line : new TreeMap<>(cart.getValue()).entrySet()) {
+                        if (line.getValue() > 0) {
+                            upsertStatement.setInt(1, cart.getKey());
+                            upsertStatement.setInt(2, line.getKey());
+                            upsertStatement.setInt(3, line.getValue());
+                            upsertStatement.addBatch();
+                        } else {
+                            deleteStatement.setInt(1, cart.getKey());
+                            deleteStatement.setInt(2, line.getKey());
+                            deleteStatement.addBatch();
+                        }
+                    }
+                }
+
+                // with rewriteBatchedStatements=true each batch goes over in as few round trips as possible
+                upsertStatement.executeBatch();
+                deleteStatement.executeBatch();
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                // the connection goes back to the pool, so put it back the way we found it
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save shopping cart quantities", e);
+        }
+    }
 
+    // turns one row of the shopping_cart / products join into a cart item
+    // checkout reads the same join inside its own transaction
+    static ShoppingCartItem mapRow(ResultSet row) throws SQLException {
+
+        // build's a product obj from the current database row
+        Product product = new Product(
+                row.getInt("product_id"),
+                row.getString("name"),
+                row.getBigDecimal("price"),
+                row.getInt("category_id"),
+                row.getString("description"),
+                row.getString("subcategory"),
+                row.getInt("stock"),
+                row.getBoolean("featured"),
+                row.getString("image_url")
+        );
+
+        // create one line time for the shopping cart
+        ShoppingCartItem item = new ShoppingCartItem();
+        // attach the product to the cart item
+        item.setProduct(product);
+        // set the quanity from the shopping cart table
+        item.setQuantity(row.getInt("quantity"));
+        // defaults to zero - no discounts
+        item.setDiscountPercent(BigDecimal.ZERO);
+
+        return item;
+    }
 }
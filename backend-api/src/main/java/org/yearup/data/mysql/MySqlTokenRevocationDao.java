@@ -0,0 +1,70 @@
+package org.yearup.data.mysql;
+
+import org.springframework.stereotype.Component;
+import org.yearup.data.TokenRevocationDao;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+@Component
+public class MySqlTokenRevocationDao extends MySqlDaoBase implements TokenRevocationDao {
+
+    public MySqlTokenRevocationDao(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    public void revoke(String sessionId, Instant expiresAt) {
+        // revoking twice keeps the later expiry
+        String sql = """
+                INSERT INTO token_revocations (session_id, expires_at)
+                VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE expires_at = GREATEST(expires_at, VALUES(expires_at))
+                """;
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, sessionId);
+            statement.setTimestamp(2, Timestamp.from(expiresAt));
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error revoking session " + sessionId, e);
+        }
+    }
+
+    @Override
+    public Map<String, Instant> getActive() {
+        Map<String, Instant> revocations = new HashMap<>();
+        String sql = "SELECT session_id, expires_at FROM token_revocations WHERE expires_at > ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now()));
+
+            try (ResultSet row = statement.executeQuery()) {
+                while (row.next()) {
+                    revocations.put(row.getString("session_id"), row.getTimestamp("expires_at").toInstant());
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Error loading token revocations", e);
+        }
+        return revocations;
+    }
+
+    @Override
+    public int deleteExpired() {
+        String sql = "DELETE FROM token_revocations WHERE expires_at <= ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setTimestamp(1, Timestamp.from(Instant.now()));
+            return statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Error deleting expired token revocations", e);
+        }
+    }
+}
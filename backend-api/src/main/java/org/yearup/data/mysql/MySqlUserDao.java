@@ -2,9 +2,11 @@ package org.yearup.data.mysql;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.yearup.data.DuplicateUsernameException;
 import org.yearup.data.UserDao;
+import org.yearup.models.Profile;
 import org.yearup.models.User;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
 import javax.sql.DataSource;
 import java.sql.*;
@@ -14,33 +16,61 @@ import java.util.List;
 @Component
 public class MySqlUserDao extends MySqlDaoBase implements UserDao
 {
+    // the shared encoder from WebSecurityConfig -- same cost and hashing pool as login
+    private final PasswordEncoder passwordEncoder;
+
     @Autowired
-    public MySqlUserDao(DataSource dataSource)
+    public MySqlUserDao(DataSource dataSource, PasswordEncoder passwordEncoder)
     {
         super(dataSource);
+        this.passwordEncoder = passwordEncoder;
     }
 
 
     @Override
     public User create(User newUser)
     {
-        String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, ?, ?)";
-        String hashedPassword = new BCryptPasswordEncoder().encode(newUser.getPassword());
+        // hash before taking a connection -- bcrypt is slow and the pool is small
+        String hashedPassword = passwordEncoder.encode(newUser.getPassword());
 
         try (Connection connection = getConnection())
         {
-            PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
-            ps.setString(1, newUser.getUsername());
-            ps.setString(2, hashedPassword);
-            ps.setString(3, newUser.getRole());
+            return insertUser(connection, newUser, hashedPassword);
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
 
-            ps.executeUpdate();
+    @Override
+    public User register(User newUser, Profile profile)
+    {
+        String hashedPassword = passwordEncoder.encode(newUser.getPassword());
 
-            User user = getByUserName(newUser.getUsername());
-            user.setPassword("");
+        // one connection, one transaction -- no user is left behind without a profile
+        try (Connection connection = getConnection())
+        {
+            connection.setAutoCommit(false);
+            try
+            {
+                User user = insertUser(connection, newUser, hashedPassword);
 
-            return user;
+                profile.setUserId(user.getId());
+                insertProfile(connection, profile);
 
+                connection.commit();
+                return user;
+            }
+            catch (SQLException | RuntimeException e)
+            {
+                connection.rollback();
+                throw e;
+            }
+            finally
+            {
+                connection.setAutoCommit(true);
+            }
         }
         catch (SQLException e)
         {
@@ -135,6 +165,24 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
         return -1;
     }
 
+    @Override
+    public void updatePassword(String username, String hashedPassword)
+    {
+        String sql = "UPDATE users SET hashed_password = ? WHERE username = ?";
+
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.setString(1, hashedPassword);
+            statement.setString(2, username);
+            statement.executeUpdate();
+        }
+        catch (SQLException e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public boolean exists(String username)
     {
@@ -142,6 +190,61 @@ public class MySqlUserDao extends MySqlDaoBase implements UserDao
         return user != null;
     }
 
+    // the new user as inserted, with the id the database generated -- the row is not read back
+    // a taken username is rejected by the unique key, so there's no need to look it up first
+    private User insertUser(Connection connection, User newUser, String hashedPassword) throws SQLException
+    {
+        String sql = "INSERT INTO users (username, hashed_password, role) VALUES (?, ?, ?)";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS))
+        {
+            ps.setString(1, newUser.getUsername());
+            ps.setString(2, hashedPassword);
+            ps.setString(3, newUser.getRole());
+
+            try
+            {
+                ps.executeUpdate();
+            }
+            catch (SQLIntegrityConstraintViolationException e)
+            {
+                throw new DuplicateUsernameException("User " + newUser.getUsername() + " already exists.", e);
+            }
+
+            try (ResultSet keys = ps.getGeneratedKeys())
+            {
+                if (!keys.next())
+                {
+                    throw new SQLException("No id was generated for user " + newUser.getUsername());
+                }
+                // the password is never handed back
+                return new User(keys.getInt(1), newUser.getUsername(), "", newUser.getRole());
+            }
+        }
+    }
+
+    // the empty profile every new user starts with
+    private void insertProfile(Connection connection, Profile profile) throws SQLException
+    {
+        String sql = "INSERT INTO profiles (user_id, first_name, last_name, phone, email, address, city, state, zip) " +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (PreparedStatement ps = connection.prepareStatement(sql))
+        {
+            ps.setInt(1, profile.getUserId());
+            ps.setString(2, profile.getFirstName());
+            ps.setString(3, profile.getLastName());
+            ps.setString(4, profile.getPhone());
+            ps.setString(5, profile.getEmail());
+            ps.setString(6, profile.getAddress());
+            ps.setString(7, profile.getCity());
+            ps.setString(8, profile.getState());
+            ps.setString(9, profile.getZip());
+
+            ps.executeUpdate();
+        }
+    }
+
     private User mapRow(ResultSet row) throws SQLException
     {
         int userId = row.getInt("user_id");
@@ -0,0 +1,115 @@
+package org.yearup.data.mysql;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// builds the product search statement with only the filters the caller actually supplied
+// "(? IS NULL OR category_id = ?)" stops MySQL from using an index, a plain "category_id = ?" does not
+// there are only a handful of filter combinations, so each SQL shape is built once and reused
+final class ProductSearchQuery {
+
+    // one bit per optional filter -- the bitmask identifies the SQL shape
+    private static final int CATEGORY = 1;
+    private static final int MIN_PRICE = 1 << 1;
+    private static final int MAX_PRICE = 1 << 2;
+    private static final int SUBCATEGORY = 1 << 3;
+    // keyset page -- adds "product_id > ?" and ORDER BY product_id LIMIT ?
+    private static final int PAGED = 1 << 4;
+    // listing columns only -- leaves the description text behind in the database
+    private static final int LISTING = 1 << 5;
+
+    // every column mapRow reads, named so the query never picks up columns nobody uses
+    static final String COLUMNS = "product_id, name, price, category_id, description, subcategory, stock, featured, image_url";
+    static final String LISTING_COLUMNS = "product_id, name, price, category_id, subcategory, stock, featured, image_url";
+
+    private static final Map<Integer, String> SQL_SHAPES = new ConcurrentHashMap<>();
+
+    private final int filters;
+    // values to bind, in the same order the predicates appear in the SQL
+    private final List<Object> parameters = new ArrayList<>(4);
+
+    private ProductSearchQuery(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory) {
+        int mask = 0;
+
+        if (categoryId != null) {
+            mask |= CATEGORY;
+            parameters.add(categoryId);
+        }
+        if (minPrice != null) {
+            mask |= MIN_PRICE;
+            parameters.add(minPrice);
+        }
+        if (maxPrice != null) {
+            mask |= MAX_PRICE;
+            parameters.add(maxPrice);
+        }
+        // an empty subcategory means "no filter", same as null
+        if (subCategory != null && !subCategory.isEmpty()) {
+            mask |= SUBCATEGORY;
+            parameters.add(subCategory);
+        }
+
+        this.filters = mask;
+    }
+
+    private ProductSearchQuery(ProductSearchQuery query, int afterProductId, int rowLimit, int extraFilters) {
+        this.filters = query.filters | PAGED | extraFilters;
+        this.parameters.addAll(query.parameters);
+        this.parameters.add(afterProductId);
+        this.parameters.add(rowLimit);
+    }
+
+    static ProductSearchQuery of(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory) {
+        return new ProductSearchQuery(categoryId, minPrice, maxPrice, subCategory);
+    }
+
+    // same filters limited to rowLimit rows with a product_id greater than afterProductId
+    static ProductSearchQuery page(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                   int afterProductId, int rowLimit) {
+        return new ProductSearchQuery(of(categoryId, minPrice, maxPrice, subCategory), afterProductId, rowLimit, 0);
+    }
+
+    // a page that only selects LISTING_COLUMNS
+    static ProductSearchQuery listingPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory,
+                                          int afterProductId, int rowLimit) {
+        return new ProductSearchQuery(of(categoryId, minPrice, maxPrice, subCategory), afterProductId, rowLimit, LISTING);
+    }
+
+    String sql() {
+        return SQL_SHAPES.computeIfAbsent(filters, ProductSearchQuery::buildSql);
+    }
+
+    void bind(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < parameters.size(); i++) {
+            statement.setObject(i + 1, parameters.get(i));
+        }
+    }
+
+    private static String buildSql(int filters) {
+        List<String> predicates = new ArrayList<>(4);
+
+        // predicate order must match the order parameters are collected in the constructor
+        if ((filters & CATEGORY) != 0) predicates.add("category_id = ?");
+        if ((filters & MIN_PRICE) != 0) predicates.add("price >= ?");
+        if ((filters & MAX_PRICE) != 0) predicates.add("price <= ?");
+        if ((filters & SUBCATEGORY) != 0) predicates.add("subcategory = ?");
+        if ((filters & PAGED) != 0) predicates.add("product_id > ?");
+
+        StringBuilder sql = new StringBuilder("SELECT ")
+                .append((filters & LISTING) != 0 ? LISTING_COLUMNS : COLUMNS)
+                .append(" FROM products");
+        if (!predicates.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", predicates));
+        }
+        if ((filters & PAGED) != 0) {
+            // the pk order is what makes the last product_id a valid cursor
+            sql.append(" ORDER BY product_id LIMIT ?");
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package org.yearup.events;
+
+import java.util.List;
+
+// published after a checkout commits
+// anything holding a copy of the cart or of product stock listens for it
+public class CheckoutCompletedEvent {
+
+    private final int userId;
+    private final int orderId;
+    // products whose stock went down
+    private final List<Integer> productIds;
+
+    public CheckoutCompletedEvent(int userId, int orderId, List<Integer> productIds) {
+        this.userId = userId;
+        this.orderId = orderId;
+        this.productIds = List.copyOf(productIds);
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public List<Integer> getProductIds() {
+        return productIds;
+    }
+}
@@ -0,0 +1,37 @@
+package org.yearup.models;
+
+import java.math.BigDecimal;
+
+// what a cart change returns when the client asks for ?view=delta
+// only the line that changed and the new total -- GET /cart still returns the whole cart
+public class CartDelta {
+
+    // the product that changed -- null when the whole cart was cleared
+    private final Integer productId;
+    // the line as it is now -- null when the product is no longer in the cart
+    private final ShoppingCartItem item;
+    private final BigDecimal total;
+
+    public CartDelta(Integer productId, ShoppingCartItem item, BigDecimal total) {
+        this.productId = productId;
+        this.item = item;
+        this.total = total;
+    }
+
+    // the cart was emptied -- no lines left and nothing to pay
+    public static CartDelta cleared() {
+        return new CartDelta(null, null, BigDecimal.ZERO);
+    }
+
+    public Integer getProductId() {
+        return productId;
+    }
+
+    public ShoppingCartItem getItem() {
+        return item;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+}
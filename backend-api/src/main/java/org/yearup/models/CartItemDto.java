@@ -0,0 +1,25 @@
+package org.yearup.models;
+
+// one line of a bulk cart request -- POST /cart/products takes a list of these
+public class CartItemDto {
+
+    private int productId;
+    // how many units to add
+    private int quantity = 1;
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public void setProductId(int productId) {
+        this.productId = productId;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
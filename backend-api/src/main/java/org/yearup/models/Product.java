@@ -1,10 +1,17 @@
 package org.yearup.models;
 
+import com.fasterxml.jackson.annotation.JsonView;
+
 import java.math.BigDecimal;
 
 // represents one product
 
 public class Product {
+    // the compact listing (?view=list) -- every field except the description
+    // spring's mapper leaves out anything not marked with the active view
+    public interface ListView {
+    }
+
     // primary key
     private int productId;
     private String name;
@@ -37,6 +44,7 @@ public class Product {
         this.imageUrl = imageUrl;
     }
 
+    @JsonView(ListView.class)
     public int getProductId() {
 
         return productId;
@@ -47,6 +55,7 @@ public class Product {
         this.productId = productId;
     }
 
+    @JsonView(ListView.class)
     public String getName() {
 
         return name;
@@ -57,6 +66,7 @@ public class Product {
         this.name = name;
     }
 
+    @JsonView(ListView.class)
     public BigDecimal getPrice() {
 
         return price;
@@ -67,6 +77,7 @@ public class Product {
         this.price = price;
     }
 
+    @JsonView(ListView.class)
     public int getCategoryId() {
 
         return categoryId;
@@ -87,6 +98,7 @@ public class Product {
         this.description = description;
     }
 
+    @JsonView(ListView.class)
     public String getSubCategory() {
 
         return subCategory;
@@ -97,6 +109,7 @@ public class Product {
         this.subCategory = subCategory;
     }
 
+    @JsonView(ListView.class)
     public int getStock() {
 
         return stock;
@@ -107,6 +120,7 @@ public class Product {
         this.stock = stock;
     }
 
+    @JsonView(ListView.class)
     public boolean isFeatured() {
 
         return isFeatured;
@@ -117,6 +131,7 @@ public class Product {
         isFeatured = featured;
     }
 
+    @JsonView(ListView.class)
     public String getImageUrl() {
 
         return imageUrl;
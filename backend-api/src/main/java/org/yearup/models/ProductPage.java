@@ -0,0 +1,42 @@
+package org.yearup.models;
+
+import java.util.List;
+
+// represents one page of a product listing
+// pages are keyed on product_id -- the id of the last product on a page is the cursor for the next one
+public class ProductPage {
+    // response header that carries the cursor for the next page
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final List<Product> products;
+    // null when this is the last page
+    private final Integer nextCursor;
+
+    public ProductPage(List<Product> products, Integer nextCursor) {
+        this.products = products;
+        this.nextCursor = nextCursor;
+    }
+
+    // builds a page from up to limit + 1 rows ordered by product_id
+    // the extra row only tells us that another page exists, it is not returned
+    public static ProductPage of(List<Product> rows, int limit) {
+        if (rows.size() <= limit) {
+            return new ProductPage(rows, null);
+        }
+
+        List<Product> products = rows.subList(0, limit);
+        return new ProductPage(products, products.get(limit - 1).getProductId());
+    }
+
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    public Integer getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,8 +1,10 @@
 package org.yearup.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -12,17 +14,30 @@ public class ShoppingCart
     // this map holds all the items in the cart
     // key - productid and value - shoppingcartitem ( product + quantity + pricing )
     // for each productid there is ont shopping cart item -- no duplicate product in the cart -- quantity can change
-    private Map<Integer, ShoppingCartItem> items = new HashMap<>();
+    private final Map<Integer, ShoppingCartItem> items = new HashMap<>();
+    // read only view handed out by getItems -- items go in through add so the running total sees them
+    private final Map<Integer, ShoppingCartItem> itemsView = Collections.unmodifiableMap(items);
+    // running total in whole cents -- kept up to date as items are added or changed
+    // so reading the total doesn't walk every item
+    private long totalCents = 0;
 
 
     public Map<Integer, ShoppingCartItem> getItems() {
 
-        return items;
+        return itemsView;
     }
 
     public void setItems(Map<Integer, ShoppingCartItem> items) {
 
-        this.items = items;
+        for (ShoppingCartItem item : this.items.values()) {
+            item.setCart(null);
+        }
+        this.items.clear();
+        totalCents = 0;
+
+        for (ShoppingCartItem item : items.values()) {
+            add(item);
+        }
     }
 
     public boolean contains(int productId) {
@@ -32,7 +47,15 @@ public class ShoppingCart
 
     public void add(ShoppingCartItem item) {
 
-        items.put(item.getProductId(), item);
+        // adding a product that is already in the cart replaces its line
+        ShoppingCartItem previous = items.put(item.getProductId(), item);
+        if (previous != null) {
+            previous.setCart(null);
+            totalCents -= previous.getLineTotalCents();
+        }
+
+        item.setCart(this);
+        totalCents += item.getLineTotalCents();
     }
 
     public ShoppingCartItem get(int productId) {
@@ -42,15 +65,22 @@ public class ShoppingCart
 
     @JsonProperty("total")
     public BigDecimal getTotal() {
-        // starts with zero
-        BigDecimal total = items.values()
-                .stream()
-                // converts each ShoppingCartItem into its line total
-                .map(i -> i.getLineTotal())
-                // add all the line total together
-                .reduce(BigDecimal.ZERO, (lineTotal, subTotal) -> subTotal.add(lineTotal));
-        // returns the final cart total
-        return total;
+        // an empty cart has always sent "total": 0, not 0.00 -- keep that for clients comparing the JSON
+        if (items.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        // the running total -- only turned into a BigDecimal here, for the JSON
+        return BigDecimal.valueOf(totalCents, 2);
+    }
+
+    @JsonIgnore
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    // called by an item in this cart when its line total changes
+    void lineTotalChanged(long previousCents, long currentCents) {
+        totalCents += currentCents - previousCents;
     }
 
 }
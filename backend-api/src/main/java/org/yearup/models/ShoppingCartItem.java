@@ -3,6 +3,7 @@ package org.yearup.models;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 // as a whole represents one product and its quantity and price
 // ShoppingCart is a container that manages ShoppingCartItems.
@@ -13,15 +14,23 @@ public class ShoppingCartItem {
     private int quantity = 1;
     private BigDecimal discountPercent = BigDecimal.ZERO;
 
+    // ( price * quantity ) - discount in whole cents, worked out once whenever the line changes
+    // money stays a long inside the cart and only becomes a BigDecimal when it is sent as JSON
+    private long lineTotalCents = 0;
+    // the cart this line belongs to -- told about every change so it can keep its running total
+    private ShoppingCart cart = null;
+
 
     public Product getProduct() {
 
         return product;
     }
 
+    // the price is read once here -- products are replaced, not changed, when a price changes
     public void setProduct(Product product) {
 
         this.product = product;
+        recalculate();
     }
 
     public int getQuantity() {
@@ -32,6 +41,7 @@ public class ShoppingCartItem {
     public void setQuantity(int quantity) {
 
         this.quantity = quantity;
+        recalculate();
     }
 
     public BigDecimal getDiscountPercent() {
@@ -42,6 +52,7 @@ public class ShoppingCartItem {
     public void setDiscountPercent(BigDecimal discountPercent) {
 
         this.discountPercent = discountPercent;
+        recalculate();
     }
 
     // returns the productId of the product in this cart
@@ -51,15 +62,48 @@ public class ShoppingCartItem {
         return this.product.getProductId();
     }
 
-    // calculates the total price for this cart item -- the line only
+    // the total price for this cart item -- the line only
     // ( price * quantity ) - discount
     public BigDecimal getLineTotal() {
-        BigDecimal basePrice = product.getPrice();
-        BigDecimal quantity = new BigDecimal(this.quantity);
+        return BigDecimal.valueOf(lineTotalCents, 2);
+    }
+
+    @JsonIgnore
+    public long getLineTotalCents() {
+        return lineTotalCents;
+    }
+
+    // called by ShoppingCart when this line is added to it
+    void setCart(ShoppingCart cart) {
+        this.cart = cart;
+    }
 
-        BigDecimal subTotal = basePrice.multiply(quantity);
-        BigDecimal discountAmount = subTotal.multiply(discountPercent);
+    private void recalculate() {
+        long previous = lineTotalCents;
+        lineTotalCents = product == null || product.getPrice() == null ? 0 : calculateLineTotalCents();
+
+        if (cart != null && previous != lineTotalCents) {
+            cart.lineTotalChanged(previous, lineTotalCents);
+        }
+    }
+
+    private long calculateLineTotalCents() {
+        long subTotalCents = Math.multiplyExact(toCents(product.getPrice()), quantity);
+
+        // no discount is the normal case -- stays in long math
+        if (discountPercent == null || discountPercent.signum() == 0) {
+            return subTotalCents;
+        }
+
+        // discountPercent is a fraction (0.10 = 10%) -- round the discount to the nearest cent
+        long discountCents = discountPercent.multiply(BigDecimal.valueOf(subTotalCents))
+                .setScale(0, RoundingMode.HALF_UP)
+                .longValueExact();
+        return subTotalCents - discountCents;
+    }
 
-        return subTotal.subtract(discountAmount);
+    // prices are stored with 2 decimals, so this is exact for anything that came from the database
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
     }
 }
@@ -2,8 +2,9 @@ package org.yearup.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.yearup.models.authentication.Authority;
+import org.yearup.models.authentication.Roles;
 
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Set;
 
@@ -15,7 +16,8 @@ public class User {
    private String password;
    @JsonIgnore
    private boolean activated;
-   private Set<Authority> authorities = new HashSet<>();
+   // shared with every other user with the same roles -- replaced, never changed in place
+   private Set<Authority> authorities = Collections.emptySet();
 
    public User() {
       this.activated = true;
@@ -70,16 +72,14 @@ public class User {
    }
 
    public void setAuthorities(String authorities) {
-      String[] roles = authorities.split(",");
-      for(String role : roles) {
-         addRole(role);
-      }
+      this.authorities = this.authorities.isEmpty()
+              ? Roles.of(authorities)
+              : Roles.with(this.authorities, authorities);
    }
 
    public void addRole(String role)
    {
-      String authority = role.contains("ROLE_") ? role : "ROLE_" + role;
-      this.authorities.add(new Authority(authority));
+      this.authorities = Roles.with(this.authorities, role);
    }
 
    @Override
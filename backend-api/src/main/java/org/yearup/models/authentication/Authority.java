@@ -2,18 +2,15 @@ package org.yearup.models.authentication;
 
 import java.util.Objects;
 
+// immutable -- the same instances are shared by every user with the role, see Roles
 public class Authority {
 
-   private String name;
+   private final String name;
 
    public String getName() {
       return name;
    }
 
-   public void setName(String name) {
-      this.name = name;
-   }
-
    public Authority(String name) {
       this.name = name;
    }
@@ -12,6 +12,7 @@ import org.yearup.models.User;
 public class LoginResponseDto {
 
     private String token;
+    private String refreshToken;
     private User user;
 
     public LoginResponseDto(String token, User user) {
@@ -19,6 +20,12 @@ public class LoginResponseDto {
         this.user = user;
     }
 
+    public LoginResponseDto(String token, String refreshToken, User user) {
+        this.token = token;
+        this.refreshToken = refreshToken;
+        this.user = user;
+    }
+
     @JsonProperty("token")
     String getToken() {
         return token;
@@ -28,6 +35,15 @@ public class LoginResponseDto {
         this.token = token;
     }
 
+    @JsonProperty("refreshToken")
+    String getRefreshToken() {
+        return refreshToken;
+    }
+
+    void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     @JsonProperty("user")
     public User getUser() {
         return user;
@@ -0,0 +1,17 @@
+package org.yearup.models.authentication;
+/*
+    The refresh token a client got from the login endpoint -- traded for a new access token at /token/refresh
+    and sent to /logout to end the login session.
+ */
+public class RefreshTokenDto {
+
+   private String refreshToken;
+
+   public String getRefreshToken() {
+      return refreshToken;
+   }
+
+   public void setRefreshToken(String refreshToken) {
+      this.refreshToken = refreshToken;
+   }
+}
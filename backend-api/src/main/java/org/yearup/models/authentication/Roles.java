@@ -0,0 +1,122 @@
+package org.yearup.models.authentication;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Shared, immutable authority collections -- one per combination of roles.
+ * <p>
+ * There are only a couple of roles, so every token and every user row with the same roles gets the same
+ * collections instead of splitting the role string and building new ones. Each combination has two views:
+ * the {@link Authority} set a {@link org.yearup.models.User} carries and the {@link GrantedAuthority} list
+ * Spring Security works with. They are looked up by the string they were built from -- a token's auth claim
+ * or a users.role column -- and by their canonical claim.
+ */
+public final class Roles {
+
+   // role strings come from our own signed tokens and the users table, but cap it all the same
+   private static final int MAX_INTERNED = 256;
+
+   private static final RoleSet NONE = new RoleSet("", Collections.emptySet(), Collections.emptyList());
+
+   private static final Map<String, RoleSet> BY_ROLES = new ConcurrentHashMap<>();
+   private static final Map<Set<Authority>, RoleSet> BY_AUTHORITIES = new ConcurrentHashMap<>();
+
+   private Roles() {
+   }
+
+   /**
+    * The authorities of a comma separated role string -- "ROLE_USER", "ADMIN" or "ROLE_ADMIN,ROLE_USER".
+    * Roles without the ROLE_ prefix get it.
+    *
+    * @return a shared set that can't be changed, empty when there are no roles
+    */
+   public static Set<Authority> of(String roles) {
+      return lookup(roles).authorities;
+   }
+
+   // the same roles as Spring Security authorities -- what a token's auth claim becomes on every request
+   public static Collection<GrantedAuthority> grantedAuthorities(String roles) {
+      return lookup(roles).grantedAuthorities;
+   }
+
+   // the Spring Security view of a user's authorities
+   public static Collection<GrantedAuthority> grantedAuthorities(Set<Authority> authorities) {
+      RoleSet roleSet = BY_AUTHORITIES.get(authorities);
+      if (roleSet != null) {
+         return roleSet.grantedAuthorities;
+      }
+      return grantedAuthorities(authorities.stream().map(Authority::getName).collect(Collectors.joining(",")));
+   }
+
+   // the same roles with one more added
+   public static Set<Authority> with(Set<Authority> authorities, String role) {
+      if (authorities.isEmpty()) {
+         return of(role);
+      }
+      return of(authorities.stream().map(Authority::getName).collect(Collectors.joining(",")) + "," + role);
+   }
+
+   // the canonical role string -- sorted and comma separated, the form tokens carry in their auth claim
+   public static String claim(Collection<? extends GrantedAuthority> authorities) {
+      return authorities.stream()
+              .map(GrantedAuthority::getAuthority)
+              .sorted()
+              .distinct()
+              .collect(Collectors.joining(","));
+   }
+
+   private static RoleSet lookup(String roles) {
+      if (roles == null || roles.isBlank()) {
+         return NONE;
+      }
+
+      RoleSet interned = BY_ROLES.get(roles);
+      if (interned != null) {
+         return interned;
+      }
+
+      RoleSet parsed = parse(roles);
+      if (BY_ROLES.size() >= MAX_INTERNED) {
+         return parsed;
+      }
+      RoleSet canonical = BY_ROLES.computeIfAbsent(parsed.claim, claim -> parsed);
+      BY_AUTHORITIES.putIfAbsent(canonical.authorities, canonical);
+      BY_ROLES.putIfAbsent(roles, canonical);
+      return canonical;
+   }
+
+   private static RoleSet parse(String roles) {
+      Set<String> names = new TreeSet<>();
+      for (String role : roles.split(",")) {
+         String name = role.trim();
+         if (!name.isEmpty()) {
+            names.add(name.contains("ROLE_") ? name : "ROLE_" + name);
+         }
+      }
+
+      Set<Authority> authorities = new LinkedHashSet<>();
+      List<GrantedAuthority> grantedAuthorities = new ArrayList<>();
+      for (String name : names) {
+         authorities.add(new Authority(name));
+         grantedAuthorities.add(new SimpleGrantedAuthority(name));
+      }
+      return new RoleSet(String.join(",", names),
+              Collections.unmodifiableSet(authorities),
+              Collections.unmodifiableList(grantedAuthorities));
+   }
+
+   private record RoleSet(String claim, Set<Authority> authorities, List<GrantedAuthority> grantedAuthorities) {
+   }
+}
@@ -0,0 +1,35 @@
+package org.yearup.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Spring Security principal that also carries the database user id, so controllers can find the
+ * logged in user's rows without looking the username up again.
+ */
+public class AuthenticatedUser extends User {
+
+    private static final long serialVersionUID = 4907316465470310153L;
+
+    /**
+     * Id used when the token was issued before ids were added to it.
+     */
+    public static final int UNKNOWN_ID = 0;
+
+    private final int id;
+
+    public AuthenticatedUser(int id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean hasId() {
+        return id != UNKNOWN_ID;
+    }
+}
@@ -0,0 +1,129 @@
+package org.yearup.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The one BCrypt encoder for the whole app -- login checks and registration hashes both go through it.
+ * Hashing is deliberately slow, so it runs on its own small pool instead of the request thread's CPU share.
+ * When that pool and its queue are full, callers are turned away at once with
+ * {@link PasswordHashingBusyException} instead of piling up behind a login storm.
+ */
+public class PasswordHasher implements PasswordEncoder, MeterBinder {
+
+    // $2a$10$... -- the two digits are the cost the hash was made with
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final int cost;
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param cost      BCrypt log rounds -- every step up doubles the work per hash
+     * @param threads   hashing threads, 0 for one per core
+     * @param queueSize hashes allowed to wait for a thread before new ones are rejected
+     */
+    public PasswordHasher(int cost, int threads, int queueSize) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        this.cost = cost;
+        this.bcrypt = new BCryptPasswordEncoder(cost);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                task -> {
+                    Thread thread = new Thread(task, "password-hasher-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> bcrypt.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> bcrypt.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * True when the hash was made with a different cost -- spring security then re-hashes the password
+     * the user just logged in with and saves it through {@link UserModelDetailsService#updatePassword}.
+     * That re-hash goes through the same pool, and a rejected one would fail a login whose password was right,
+     * so while hashes are already waiting for a thread the upgrade is left for a later login.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_COST.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) != cost && executor.getQueue().isEmpty();
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    // hashes waiting for a free thread
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("password.hashing.queue", this, PasswordHasher::getQueueDepth)
+                .description("Password hashes waiting for a hashing thread")
+                .register(registry);
+        FunctionCounter.builder("password.hashing.rejected", rejected, AtomicLong::get)
+                .description("Logins and registrations turned away because hashing was saturated")
+                .register(registry);
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> hash) {
+        Future<T> result;
+        try {
+            result = executor.submit(hash);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw new PasswordHashingBusyException("Too many logins at once, try again shortly.");
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing a password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
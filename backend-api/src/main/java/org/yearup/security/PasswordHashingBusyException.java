@@ -0,0 +1,11 @@
+package org.yearup.security;
+
+// every password hashing thread is busy and the queue is full -- the caller should come back later
+public class PasswordHashingBusyException extends RuntimeException {
+
+    private static final long serialVersionUID = 6143542853420974311L;
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
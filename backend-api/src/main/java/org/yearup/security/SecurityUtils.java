@@ -7,6 +7,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.security.Principal;
 import java.util.Optional;
 
 public class SecurityUtils {
@@ -40,4 +41,19 @@ public class SecurityUtils {
 
         return Optional.ofNullable(username);
     }
+
+    /**
+     * Get the database id of the user behind a request principal, if the token carried one.
+     *
+     * @param principal the principal spring passed to the controller.
+     * @return the user id, or empty if it has to be looked up by username.
+     */
+    public static Optional<Integer> getUserId(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof AuthenticatedUser user
+                && user.hasId()) {
+            return Optional.of(user.getId());
+        }
+        return Optional.empty();
+    }
 }
@@ -3,22 +3,20 @@ package org.yearup.security;
 
 import org.yearup.data.UserDao;
 import org.yearup.models.User;
+import org.yearup.models.authentication.Roles;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 /**
  * Authenticate a user from the database.
+ * Also saves the new hash when a login finds the password was hashed with an old BCrypt cost.
  */
 @Component("userDetailsService")
-public class UserModelDetailsService implements UserDetailsService {
+public class UserModelDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final Logger log = LoggerFactory.getLogger(UserModelDetailsService.class);
 
@@ -39,19 +37,27 @@ public class UserModelDetailsService implements UserDetailsService {
             throw new UserNotActivatedException("User not found with username: " + lowercaseLogin); 
         }
 
-        return createSpringSecurityUser(lowercaseLogin, userDao.getByUserName(lowercaseLogin));
+        return createSpringSecurityUser(lowercaseLogin, user);
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        log.debug("Re-hashing the password of user '{}'", user.getUsername());
+        userDao.updatePassword(user.getUsername(), newPassword);
+
+        int id = user instanceof AuthenticatedUser ? ((AuthenticatedUser) user).getId() : AuthenticatedUser.UNKNOWN_ID;
+        return new AuthenticatedUser(id, user.getUsername(), newPassword, user.getAuthorities());
     }
 
-    private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
+    private AuthenticatedUser createSpringSecurityUser(String lowercaseLogin, User user) {
         if (!user.isActivated()) {
             throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
         }
-        List<GrantedAuthority> grantedAuthorities = user.getAuthorities().stream()
-                .map(authority -> new SimpleGrantedAuthority(authority.getName()))
-                .collect(Collectors.toList());
-        return new org.springframework.security.core.userdetails.User(user.getUsername(),
+        // the shared authorities for the user's roles, no need to build them
+        return new AuthenticatedUser(user.getId(),
+                user.getUsername(),
                 user.getPassword(),
-                grantedAuthorities);
+                Roles.grantedAuthorities(user.getAuthorities()));
     }
 }
 
@@ -1,7 +1,9 @@
 package org.yearup.security;
 
 import org.yearup.security.jwt.JWTConfigurer;
+import org.yearup.security.jwt.RevocationIndex;
 import org.yearup.security.jwt.TokenProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
@@ -10,8 +12,6 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 @EnableWebSecurity
 @EnableGlobalMethodSecurity(prePostEnabled = true, securedEnabled = true)
@@ -34,9 +34,25 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         this.userModelDetailsService = userModelDetailsService;
     }
 
+    /**
+     * The password encoder for logins and registrations.
+     * Static so the DAOs can use it without waiting for this configuration class to be built.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public static PasswordHasher passwordEncoder(@Value("${security.password.cost:10}") int cost,
+                                                 @Value("${security.password.threads:0}") int threads,
+                                                 @Value("${security.password.queue-size:64}") int queueSize) {
+        return new PasswordHasher(cost, threads, queueSize);
+    }
+
+    /**
+     * Revoked login sessions, checked by the JWT filter on every request.
+     * Static for the same reason -- the token provider needs it before this class exists.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static RevocationIndex revocationIndex(@Value("${jwt.revocation.expected-entries:100000}") int expectedEntries,
+                                                  @Value("${jwt.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        return new RevocationIndex(expectedEntries, falsePositiveRate);
     }
 
     /**
@@ -67,6 +83,15 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
                 .sessionManagement()
                 .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
 
+                // there is no session to log out of -- POST /logout revokes the token's login session instead
+                .and()
+                .logout().disable()
+
+                // actuator endpoints expose internals, only health is public
+                .authorizeRequests()
+                .antMatchers("/actuator/health").permitAll()
+                .antMatchers("/actuator/**").hasRole("ADMIN")
+
                 .and()
                 .apply(securityConfigurerAdapter());
     }
@@ -37,8 +37,10 @@ public class JWTFilter extends GenericFilterBean {
         String jwt = resolveToken(httpServletRequest);
         String requestURI = httpServletRequest.getRequestURI();
 
-        if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-            Authentication authentication = tokenProvider.getAuthentication(jwt);
+        // verifies the token and builds the principal in one step -- repeat tokens come from a cache
+        Authentication authentication = StringUtils.hasText(jwt) ? tokenProvider.authenticate(jwt) : null;
+
+        if (authentication != null) {
             SecurityContextHolder.getContext().setAuthentication(authentication);
             LOG.debug("set Authentication to custom security context for '{}', uri: {}", authentication.getName(), requestURI);
         } else {
@@ -0,0 +1,149 @@
+package org.yearup.security.jwt;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked login sessions, checked on every request without a database hit.
+ * <p>
+ * A bloom filter sits in front of an exact map of session id -> expiry. Almost every session
+ * was never revoked, and for those the filter answers "no" from a few bit lookups without touching
+ * the map. A "maybe" is settled by the map, so a false positive costs one more lookup, never a wrong answer.
+ * <p>
+ * Bloom filters can't forget entries, so {@link #evictExpired} drops expired sessions from the map
+ * and rebuilds the filter from what is left.
+ */
+public class RevocationIndex
+{
+    // session id -> epoch millis after which every token of the session has expired anyway
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+
+    // replaced as a whole on every rebuild -- readers never see a half built filter
+    private volatile BloomFilter filter;
+
+    public RevocationIndex(int expectedEntries, double falsePositiveRate)
+    {
+        this.expectedEntries = expectedEntries;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedEntries, falsePositiveRate);
+    }
+
+    public boolean isRevoked(String sessionId)
+    {
+        if (sessionId == null || !filter.mightContain(sessionId))
+        {
+            return false;
+        }
+
+        Long expiresAt = revoked.get(sessionId);
+        return expiresAt != null && expiresAt > System.currentTimeMillis();
+    }
+
+    // locked against rebuilds so a revocation can't fall between the old filter and the new one
+    public synchronized void revoke(String sessionId, long expiresAtMillis)
+    {
+        revoked.merge(sessionId, expiresAtMillis, Math::max);
+
+        BloomFilter current = filter;
+        current.add(sessionId);
+        // writing the volatile field again publishes the new bits to threads that read it next
+        filter = current;
+    }
+
+    /**
+     * Forgets sessions whose tokens have all expired and rebuilds the filter without them.
+     *
+     * @return how many sessions were forgotten
+     */
+    public synchronized int evictExpired()
+    {
+        long now = System.currentTimeMillis();
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+
+        // sized for the larger of the expected count and what is actually there, so a flood of logouts
+        // doesn't push the false positive rate up for good
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+
+        return before - revoked.size();
+    }
+
+    public int size()
+    {
+        return revoked.size();
+    }
+
+    // k bit positions per key from two 64-bit hashes (Kirsch-Mitzenmacher double hashing)
+    private static final class BloomFilter
+    {
+        private final long[] bits;
+        private final int bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedEntries, double falsePositiveRate)
+        {
+            int entries = Math.max(1, expectedEntries);
+            long optimalBits = (long) Math.ceil(-entries * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+
+            this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63, Math.max(64, optimalBits));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / entries * Math.log(2)));
+            this.bits = new long[(bitCount + 63) / 64];
+        }
+
+        // only called under the index lock
+        void add(String key)
+        {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < hashCount; i++)
+            {
+                int bit = index(hash1 + i * hash2);
+                bits[bit >>> 6] |= 1L << bit;
+            }
+        }
+
+        boolean mightContain(String key)
+        {
+            long hash1 = hash(key);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < hashCount; i++)
+            {
+                int bit = index(hash1 + i * hash2);
+                if ((bits[bit >>> 6] & (1L << bit)) == 0)
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int index(long combined)
+        {
+            return (int) ((combined & Long.MAX_VALUE) % bitCount);
+        }
+
+        // 64-bit FNV-1a over the characters
+        private static long hash(String key)
+        {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < key.length(); i++)
+            {
+                hash ^= key.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // splitmix64 finalizer -- an independent looking second hash from the first
+        private static long mix(long value)
+        {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package org.yearup.security.jwt;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
@@ -8,19 +13,24 @@ import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 import org.springframework.stereotype.Component;
+import org.yearup.models.authentication.Roles;
+import org.yearup.security.AuthenticatedUser;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
-import java.util.Arrays;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
-import java.util.stream.Collectors;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class TokenProvider implements InitializingBean
@@ -29,19 +39,52 @@ public class TokenProvider implements InitializingBean
     private final Logger logger = LoggerFactory.getLogger(TokenProvider.class);
 
     private static final String AUTHORITIES_KEY = "auth";
+    // database user id -- lets controllers skip the username -> id lookup
+    private static final String USER_ID_KEY = "uid";
+    // login session -- shared by the refresh token and every access token issued from it, revoked as one
+    private static final String SESSION_ID_KEY = "sid";
+    private static final String TOKEN_TYPE_KEY = "type";
+    private static final String ACCESS_TOKEN = "access";
+    private static final String REFRESH_TOKEN = "refresh";
 
     private final String secret;
     private final long tokenTimeout;
+    private final long refreshTokenTimeout;
+    private final RevocationIndex revocationIndex;
+
+    // verified tokens, keyed by a SHA-256 of the token so raw tokens are not kept around
+    // only the parsed user is kept -- every request gets an Authentication of its own, because
+    // spring security and anything downstream may change the one it was handed (setAuthenticated, setDetails, eraseCredentials)
+    // each entry expires when its token does, so an expired token is never served from here
+    private final Cache<String, VerifiedToken> verifiedTokens;
 
     private Key key;
+    // parsers are thread safe -- build one and reuse it instead of one per call
+    private JwtParser parser;
 
 
+    @Autowired
     public TokenProvider(
             @Value("${jwt.secret}") String secret,
-            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds)
+            @Value("${jwt.token-timeout-seconds}") long tokenTimeoutSeconds,
+            @Value("${jwt.refresh-token-timeout-seconds}") long refreshTokenTimeoutSeconds,
+            @Value("${jwt.cache.max-size:10000}") long cacheMaxSize,
+            RevocationIndex revocationIndex)
     {
         this.secret = secret;
         this.tokenTimeout = tokenTimeoutSeconds * 1000;
+        this.refreshTokenTimeout = refreshTokenTimeoutSeconds * 1000;
+        this.revocationIndex = revocationIndex;
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpires())
+                .build();
+    }
+
+    // refresh tokens live as long as access tokens and nothing is revoked
+    public TokenProvider(String secret, long tokenTimeoutSeconds, long cacheMaxSize)
+    {
+        this(secret, tokenTimeoutSeconds, tokenTimeoutSeconds, cacheMaxSize, new RevocationIndex(1000, 0.01));
     }
 
     @Override
@@ -49,55 +92,226 @@ public class TokenProvider implements InitializingBean
     {
         byte[] keyBytes = Decoders.BASE64.decode(secret);
         this.key = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
     }
 
+    // an access token in a session of its own
     public String createToken(Authentication authentication, boolean rememberMe)
     {
-        String authorities = authentication.getAuthorities().stream()
-                .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.joining(","));
+        return createToken(authentication, newSessionId(), ACCESS_TOKEN, tokenTimeout);
+    }
+
+    /**
+     * Starts a login session -- a short lived access token for requests and a refresh token
+     * that trades for new access tokens until it expires or the session is revoked.
+     */
+    public Tokens createTokens(Authentication authentication)
+    {
+        String sessionId = newSessionId();
+        return new Tokens(
+                createToken(authentication, sessionId, ACCESS_TOKEN, tokenTimeout),
+                createToken(authentication, sessionId, REFRESH_TOKEN, refreshTokenTimeout));
+    }
+
+    /**
+     * A new access token for the session of a refresh token.
+     *
+     * @return the access token, or null if the refresh token is invalid, expired or revoked
+     */
+    public String refresh(String refreshToken)
+    {
+        try
+        {
+            Claims claims = parser.parseClaimsJws(refreshToken).getBody();
+            String sessionId = claims.get(SESSION_ID_KEY, String.class);
+            if (!REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_KEY)) || revocationIndex.isRevoked(sessionId))
+            {
+                return null;
+            }
+
+            return createToken(toAuthentication(claims, refreshToken), sessionId, ACCESS_TOKEN, tokenTimeout);
+        }
+        catch (Exception e)
+        {
+            logger.info("Refresh Token Invalid.");
+            logger.trace("Refresh Token Invalid trace: {}.", e.toString());
+        }
+        return null;
+    }
+
+    /**
+     * The login session of a valid access or refresh token.
+     *
+     * @return the session id, or null if the token is invalid or was issued before tokens had sessions
+     */
+    public String getSessionId(String token)
+    {
+        try
+        {
+            return parser.parseClaimsJws(token).getBody().get(SESSION_ID_KEY, String.class);
+        }
+        catch (Exception e)
+        {
+            logger.info("Token Invalid.");
+            logger.trace("Token Invalid trace: {}.", e.toString());
+        }
+        return null;
+    }
+
+    // how long a revoked session has to be remembered -- until its refresh token and the last access token
+    // issued from it have both expired
+    public long getSessionTimeoutMillis()
+    {
+        return refreshTokenTimeout + tokenTimeout;
+    }
+
+    private String createToken(Authentication authentication, String sessionId, String type, long timeout)
+    {
+        String authorities = Roles.claim(authentication.getAuthorities());
 
         long now = (new Date()).getTime();
-        Date expirationDate = new Date(now + this.tokenTimeout);
+        Date expirationDate = new Date(now + timeout);
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(authentication.getName())
                 .claim(AUTHORITIES_KEY, authorities)
+                .claim(SESSION_ID_KEY, sessionId)
+                .claim(TOKEN_TYPE_KEY, type);
+
+        if (authentication.getPrincipal() instanceof AuthenticatedUser user && user.hasId())
+        {
+            builder.claim(USER_ID_KEY, user.getId());
+        }
+
+        return builder
                 .signWith(key, SignatureAlgorithm.HS512)
                 .setExpiration(expirationDate)
                 .compact();
     }
 
-    public Authentication getAuthentication(String token)
+    private static String newSessionId()
     {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        Collection<? extends GrantedAuthority> authorities =
-                Arrays.stream(claims.get(AUTHORITIES_KEY).toString().split(","))
-                        .map(SimpleGrantedAuthority::new)
-                        .collect(Collectors.toList());
-
-        User principal = new User(claims.getSubject(), "", authorities);
-
-        return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        return UUID.randomUUID().toString();
     }
 
-    public boolean validateToken(String authToken)
+    /**
+     * Verify an access token and build its Authentication in one pass.
+     * Tokens seen before are answered from the cache without checking the signature again,
+     * but every call checks the revocation index -- a session can be revoked after its token was cached.
+     *
+     * @return the authentication, or null if the token is invalid, expired, revoked or a refresh token
+     */
+    public Authentication authenticate(String token)
     {
+        String tokenHash = hash(token);
+
+        VerifiedToken verified = verifiedTokens.getIfPresent(tokenHash);
+        if (verified != null)
+        {
+            return revocationIndex.isRevoked(verified.sessionId) ? null : verified.toAuthentication(token);
+        }
+
         try
         {
-            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            // tokens issued before there were refresh tokens have no type and count as access tokens
+            if (REFRESH_TOKEN.equals(claims.get(TOKEN_TYPE_KEY)))
+            {
+                return null;
+            }
+
+            String sessionId = claims.get(SESSION_ID_KEY, String.class);
+            if (revocationIndex.isRevoked(sessionId))
+            {
+                return null;
+            }
+            VerifiedToken parsed = verify(claims, sessionId);
+
+            // tokens without an expiration are not cached -- there is nothing to bound their lifetime
+            if (claims.getExpiration() != null)
+            {
+                verifiedTokens.put(tokenHash, parsed);
+            }
+            return parsed.toAuthentication(token);
         }
         catch (Exception e)
         {
             logger.info("Token Invalid.");
             logger.trace("Token Invalid trace: {}.", e.toString());
         }
-        return false;
+        return null;
+    }
+
+    private Authentication toAuthentication(Claims claims, String token)
+    {
+        return verify(claims, claims.get(SESSION_ID_KEY, String.class)).toAuthentication(token);
+    }
+
+    private VerifiedToken verify(Claims claims, String sessionId)
+    {
+        // the shared set for these roles -- nothing is split or allocated for a claim seen before
+        Collection<? extends GrantedAuthority> authorities = Roles.grantedAuthorities(claims.get(AUTHORITIES_KEY, String.class));
+
+        // tokens issued before the id claim existed fall back to a lookup by username
+        Integer userId = claims.get(USER_ID_KEY, Integer.class);
+        AuthenticatedUser principal = new AuthenticatedUser(
+                userId == null ? AuthenticatedUser.UNKNOWN_ID : userId,
+                claims.getSubject(),
+                "",
+                authorities);
+
+        long expiresAtMillis = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        return new VerifiedToken(principal, authorities, sessionId, expiresAtMillis);
+    }
+
+    private static String hash(String token)
+    {
+        try
+        {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(digest);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Tokens(String accessToken, String refreshToken)
+    {
+    }
+
+    private record VerifiedToken(AuthenticatedUser principal, Collection<? extends GrantedAuthority> authorities,
+                                 String sessionId, long expiresAtMillis)
+    {
+        // a new token object per request -- the principal and authorities inside it are shared, and never changed
+        Authentication toAuthentication(String token)
+        {
+            return new UsernamePasswordAuthenticationToken(principal, token, authorities);
+        }
+    }
+
+    // evicts each cached token at its own expiration time
+    private static class UntilTokenExpires implements Expiry<String, VerifiedToken>
+    {
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken value, long currentTime)
+        {
+            long remainingMillis = value.expiresAtMillis() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMillis));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration)
+        {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration)
+        {
+            return currentDuration;
+        }
     }
 }
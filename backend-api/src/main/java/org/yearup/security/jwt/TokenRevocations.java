@@ -0,0 +1,75 @@
+package org.yearup.security.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.yearup.data.TokenRevocationDao;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Keeps the in-memory {@link RevocationIndex} in step with the token_revocations table.
+ * <p>
+ * Requests only ever read the index. The table is what survives a restart and what other
+ * instances revoke into -- it is loaded at startup and read again on every sync.
+ */
+@Component
+public class TokenRevocations implements InitializingBean
+{
+    private static final Logger LOG = LoggerFactory.getLogger(TokenRevocations.class);
+
+    private final TokenRevocationDao tokenRevocationDao;
+    private final RevocationIndex revocationIndex;
+    private final TokenProvider tokenProvider;
+
+    public TokenRevocations(TokenRevocationDao tokenRevocationDao, RevocationIndex revocationIndex, TokenProvider tokenProvider)
+    {
+        this.tokenRevocationDao = tokenRevocationDao;
+        this.revocationIndex = revocationIndex;
+        this.tokenProvider = tokenProvider;
+    }
+
+    // a failed load stops startup -- serving without the revocations would let revoked sessions back in
+    @Override
+    public void afterPropertiesSet()
+    {
+        int loaded = load();
+        LOG.info("loaded {} token revocations", loaded);
+    }
+
+    // revoked in the table first, so a revocation this instance acknowledges is never lost
+    public void revoke(String sessionId)
+    {
+        long expiresAtMillis = System.currentTimeMillis() + tokenProvider.getSessionTimeoutMillis();
+
+        tokenRevocationDao.revoke(sessionId, Instant.ofEpochMilli(expiresAtMillis));
+        revocationIndex.revoke(sessionId, expiresAtMillis);
+    }
+
+    // picks up revocations made by other instances and forgets the ones that have expired
+    @Scheduled(fixedDelayString = "${jwt.revocation.sync-millis:60000}", initialDelayString = "${jwt.revocation.sync-millis:60000}")
+    public void sync()
+    {
+        try
+        {
+            load();
+            tokenRevocationDao.deleteExpired();
+            revocationIndex.evictExpired();
+        }
+        catch (RuntimeException e)
+        {
+            // the index keeps what it has -- the next sync tries again
+            LOG.error("Failed to sync token revocations", e);
+        }
+    }
+
+    private int load()
+    {
+        Map<String, Instant> active = tokenRevocationDao.getActive();
+        active.forEach((sessionId, expiresAt) -> revocationIndex.revoke(sessionId, expiresAt.toEpochMilli()));
+        return active.size();
+    }
+}
@@ -0,0 +1,90 @@
+package org.yearup.configurations;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DaoMetricsInterceptorTest
+{
+    private SimpleMeterRegistry registry;
+    private ExampleDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        registry = new SimpleMeterRegistry();
+
+        ProxyFactory proxy = new ProxyFactory(new ExampleDaoImpl());
+        proxy.addAdvice(new DaoMetricsInterceptor(registry, "ExampleDaoImpl"));
+        dao = (ExampleDao) proxy.getProxy();
+    }
+
+    @Test
+    public void list_shouldTimeTheCallAndCountTheRows()
+    {
+        // act
+        dao.list();
+        dao.list();
+
+        // assert
+        assertEquals(2, registry.get("dao.calls").tags("dao", "ExampleDaoImpl", "method", "list", "exception", "none").timer().count());
+        assertEquals(6, registry.get("dao.rows").tags("method", "list").summary().totalAmount(), "Because each call returned 3 rows.");
+    }
+
+    @Test
+    public void stream_shouldCountTheRowsHandedToTheConsumer()
+    {
+        // act
+        dao.stream(row -> { });
+
+        // assert
+        assertEquals(3, registry.get("dao.rows").tags("method", "stream").summary().totalAmount());
+    }
+
+    @Test
+    public void delete_shouldNotRecordRows_andShouldTagTheException()
+    {
+        // act
+        assertThrows(IllegalStateException.class, () -> dao.delete(1));
+
+        // assert
+        assertEquals(1, registry.get("dao.calls").tags("method", "delete", "exception", "IllegalStateException").timer().count());
+        assertNull(registry.find("dao.rows").tags("method", "delete").summary(), "Because writes don't return rows.");
+    }
+
+    interface ExampleDao
+    {
+        List<Integer> list();
+
+        void stream(Consumer<Integer> consumer);
+
+        boolean delete(int id);
+    }
+
+    static class ExampleDaoImpl implements ExampleDao
+    {
+        @Override
+        public List<Integer> list()
+        {
+            return List.of(1, 2, 3);
+        }
+
+        @Override
+        public void stream(Consumer<Integer> consumer)
+        {
+            List.of(1, 2, 3).forEach(consumer);
+        }
+
+        @Override
+        public boolean delete(int id)
+        {
+            throw new IllegalStateException("database is down");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.yearup.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogETagInterceptorTest
+{
+    private CatalogVersion catalogVersion;
+    private CatalogETagInterceptor interceptor;
+
+    @BeforeEach
+    public void setup()
+    {
+        catalogVersion = new CatalogVersion();
+        interceptor = new CatalogETagInterceptor(catalogVersion, 0);
+    }
+
+    @Test
+    public void preHandle_shouldTagTheResponse_whenTheClientHasNoCopy()
+    {
+        // arrange
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean proceed = interceptor.preHandle(new MockHttpServletRequest("GET", "/products"), response, null);
+
+        // assert
+        assertTrue(proceed, "Because the controller has to build the body.");
+        assertEquals(catalogVersion.productsETag(), response.getHeader("ETag"));
+        assertEquals("no-cache, public", response.getHeader("Cache-Control"));
+    }
+
+    @Test
+    public void preHandle_shouldAnswer304_whenTheClientCopyIsCurrent()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+        request.addHeader("If-None-Match", catalogVersion.productsETag());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, response, null);
+
+        // assert
+        assertFalse(proceed, "Because a current copy should never reach the controller.");
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void preHandle_shouldSendTheBody_afterTheCatalogChanges()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/categories");
+        request.addHeader("If-None-Match", catalogVersion.categoriesETag());
+        catalogVersion.categoriesChanged();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertTrue(proceed, "Because the client's copy is from before the change.");
+    }
+
+    @Test
+    public void preHandle_shouldKeepCategoriesCurrent_whenOnlyProductsChange()
+    {
+        // arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/categories/1");
+        request.addHeader("If-None-Match", catalogVersion.categoriesETag());
+        catalogVersion.productsChanged();
+
+        // act
+        boolean proceed = interceptor.preHandle(request, new MockHttpServletResponse(), null);
+
+        // assert
+        assertFalse(proceed, "Because a checkout changes stock, not categories.");
+    }
+}
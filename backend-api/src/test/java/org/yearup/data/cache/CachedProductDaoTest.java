@@ -0,0 +1,239 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.events.CheckoutCompletedEvent;
+import org.yearup.models.Product;
+import org.yearup.models.ProductPage;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedProductDaoTest
+{
+    private InMemoryProductDao database;
+    private CachedProductDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new InMemoryProductDao();
+        database.create(product(1, "Smartphone", "499.99", 1, "Black"));
+        database.create(product(2, "Laptop", "899.99", 1, "Gray"));
+        database.create(product(3, "Jeans", "39.99", 2, "Blue"));
+
+        dao = new CachedProductDao(database, 0);
+    }
+
+    @Test
+    public void search_shouldFilter_fromTheSnapshot()
+    {
+        // act
+        List<Product> products = dao.search(1, new BigDecimal("100"), null, "black");
+
+        // assert
+        assertEquals(1, products.size(), "Because only the smartphone is in category 1, over 100 and black.");
+        assertEquals(1, products.get(0).getProductId());
+    }
+
+    @Test
+    public void reads_shouldOnlyLoadTheCatalogOnce()
+    {
+        // act
+        dao.search(null, null, null, null);
+        dao.listByCategoryId(1);
+        dao.getById(3);
+
+        // assert
+        assertEquals(1, database.loads, "Because every read after the first one should be served from memory.");
+    }
+
+    @Test
+    public void searchPage_shouldReturnTheProductsAfterTheCursor()
+    {
+        // act
+        ProductPage first = dao.searchPage(null, null, null, null, 0, 2);
+        ProductPage second = dao.searchPage(null, null, null, null, first.getNextCursor(), 2);
+
+        // assert
+        assertEquals(2, first.getProducts().size());
+        assertEquals(2, first.getNextCursor(), "Because the cursor is the id of the last product on the page.");
+        assertEquals(1, second.getProducts().size());
+        assertEquals(3, second.getProducts().get(0).getProductId());
+        assertFalse(second.hasNext(), "Because there are only 3 products.");
+    }
+
+    @Test
+    public void update_shouldPatchTheSnapshot()
+    {
+        // arrange
+        dao.getById(2);
+        Product laptop = product(2, "Laptop", "799.99", 2, "Gray");
+
+        // act
+        dao.update(2, laptop);
+
+        // assert
+        assertEquals(new BigDecimal("799.99"), dao.getById(2).getPrice());
+        assertEquals(2, dao.listByCategoryId(2).size(), "Because the laptop moved to category 2.");
+        assertEquals(1, database.loads, "Because an update should patch the snapshot instead of reloading it.");
+    }
+
+    @Test
+    public void createAndDelete_shouldPatchTheSnapshot()
+    {
+        // arrange
+        dao.getById(1);
+
+        // act
+        Product created = dao.create(product(0, "Hoodie", "49.99", 2, "Red"));
+        dao.delete(1);
+
+        // assert
+        assertNotNull(dao.getById(created.getProductId()));
+        assertNull(dao.getById(1));
+        assertEquals(1, database.loads);
+    }
+
+    @Test
+    public void checkoutCompleted_shouldRefreshTheStockOfTheCheckedOutProducts()
+    {
+        // arrange
+        dao.getById(1);
+        Product smartphone = database.getById(1);
+        database.products.put(1, new Product(1, smartphone.getName(), smartphone.getPrice(), smartphone.getCategoryId(),
+                "", smartphone.getSubCategory(), 7, false, ""));
+
+        // act
+        dao.onCheckoutCompleted(new CheckoutCompletedEvent(1, 1, List.of(1)));
+
+        // assert
+        assertEquals(7, dao.getById(1).getStock(), "Because checkout took 3 of the 10 smartphones.");
+        assertEquals(1, database.loads, "Because only the checked out products should be re-read.");
+    }
+
+    @Test
+    public void getById_shouldHandOutReadOnlyProducts()
+    {
+        // arrange
+        Product smartphone = dao.getById(1);
+
+        // act
+        assertThrows(UnsupportedOperationException.class, () -> smartphone.setPrice(BigDecimal.ONE));
+
+        // assert
+        assertEquals(new BigDecimal("499.99"), dao.getById(1).getPrice(), "Because one caller must not change the product for everyone.");
+    }
+
+    @Test
+    public void update_shouldNotPutBackAnOlderRow_whenAnotherWriteLandsWhileReading()
+    {
+        // arrange
+        dao.getById(2);
+        database.onGetById = () -> {
+            // a second update that lands while the first one is reading its row back
+            database.onGetById = null;
+            dao.update(2, product(2, "Laptop", "699.99", 1, "Gray"));
+        };
+
+        // act
+        dao.update(2, product(2, "Laptop", "799.99", 1, "Gray"));
+
+        // assert
+        assertEquals(new BigDecimal("699.99"), dao.getById(2).getPrice(), "Because the second update is the newest row.");
+    }
+
+    @Test
+    public void snapshotGeneration_shouldChange_whenTheSnapshotIsPatchedOrReloaded()
+    {
+        // arrange
+        long loaded = dao.snapshotGeneration();
+
+        // act
+        dao.onCheckoutCompleted(new CheckoutCompletedEvent(1, 1, List.of(1)));
+        long patched = dao.snapshotGeneration();
+        dao.invalidate();
+        long reloaded = dao.snapshotGeneration();
+
+        // assert
+        assertEquals(reloaded, dao.snapshotGeneration(), "Because reading the generation should not build a new snapshot.");
+        assertNotEquals(loaded, patched, "Because checkout stock changes are served from a new snapshot.");
+        assertNotEquals(patched, reloaded, "Because a reload may pick up changes made by other instances.");
+    }
+
+    private static Product product(int id, String name, String price, int categoryId, String subCategory)
+    {
+        return new Product(id, name, new BigDecimal(price), categoryId, "", subCategory, 10, false, "");
+    }
+
+    // stands in for MySqlProductDao and counts full catalog loads
+    private static class InMemoryProductDao implements ProductDao
+    {
+        private final Map<Integer, Product> products = new TreeMap<>();
+        private int nextId = 1;
+        private int loads = 0;
+        // runs after a row is read but before it is returned -- lets a test land a write in between
+        private Runnable onGetById;
+
+        @Override
+        public List<Product> search(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory)
+        {
+            loads++;
+            return new ArrayList<>(products.values());
+        }
+
+        @Override
+        public List<Product> listByCategoryId(int categoryId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ProductPage searchPage(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, int afterProductId, int limit)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void streamSearch(Integer categoryId, BigDecimal minPrice, BigDecimal maxPrice, String subCategory, Consumer<Product> consumer)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Product getById(int productId)
+        {
+            Product product = products.get(productId);
+            if (onGetById != null) onGetById.run();
+            return product;
+        }
+
+        @Override
+        public Product create(Product product)
+        {
+            int id = product.getProductId() == 0 ? Math.max(nextId, products.size() + 1) : product.getProductId();
+            nextId = id + 1;
+            Product created = product(id, product.getName(), product.getPrice().toString(), product.getCategoryId(), product.getSubCategory());
+            products.put(id, created);
+            return created;
+        }
+
+        @Override
+        public boolean update(int productId, Product product)
+        {
+            if (!products.containsKey(productId)) return false;
+            products.put(productId, product(productId, product.getName(), product.getPrice().toString(), product.getCategoryId(), product.getSubCategory()));
+            return true;
+        }
+
+        @Override
+        public boolean delete(int productId)
+        {
+            return products.remove(productId) != null;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.yearup.data.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProfileDao;
+import org.yearup.models.Profile;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedProfileDaoTest
+{
+    private InMemoryProfileDao database;
+    private SimpleMeterRegistry registry;
+    private CachedProfileDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new InMemoryProfileDao();
+        database.create(profile(1, "Joe", "Joe@example.com"));
+
+        registry = new SimpleMeterRegistry();
+        dao = new CachedProfileDao(database, registry, 100, 600);
+    }
+
+    @Test
+    public void getByUserId_shouldOnlyReadTheDatabaseOnce()
+    {
+        // act
+        dao.getByUserId(1);
+        dao.getByUserId(1);
+        Profile profile = dao.getByUserId(1);
+
+        // assert
+        assertEquals("Joe", profile.getFirstName());
+        assertEquals(1, database.reads, "Because every read after the first one should be served from memory.");
+        assertEquals(2, registry.get("cache.gets").tags("cache", "profiles", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "profiles", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    public void update_shouldWriteThroughToTheCache()
+    {
+        // arrange
+        dao.getByUserId(1);
+        Profile changed = profile(1, "Joseph", "Joseph@example.com");
+
+        // act
+        dao.update(changed);
+        changed.setFirstName("changed after saving");
+        Profile profile = dao.getByUserId(1);
+
+        // assert
+        assertEquals("Joseph", profile.getFirstName(), "Because the saved profile replaces the cached one.");
+        assertEquals(1, database.reads, "Because the update put the new profile in the cache.");
+    }
+
+    @Test
+    public void getByUserId_shouldNotCacheAMissingProfile()
+    {
+        // arrange
+        assertNull(dao.getByUserId(2));
+
+        // act
+        database.create(profile(2, "Ann", "Ann@example.com"));
+        Profile profile = dao.getByUserId(2);
+
+        // assert
+        assertNotNull(profile, "Because a profile created outside the cache must be found.");
+    }
+
+    private static Profile profile(int userId, String firstName, String email)
+    {
+        return new Profile(userId, firstName, "Smith", "800-555-1234", email, "123 Main St", "Dallas", "TX", "75051");
+    }
+
+    private static class InMemoryProfileDao implements ProfileDao
+    {
+        private final Map<Integer, Profile> profiles = new HashMap<>();
+        private int reads = 0;
+
+        @Override
+        public Profile create(Profile profile)
+        {
+            profiles.put(profile.getUserId(), profile);
+            return profile;
+        }
+
+        @Override
+        public Profile getByUserId(int userId)
+        {
+            reads++;
+            return profiles.get(userId);
+        }
+
+        @Override
+        public boolean update(Profile profile)
+        {
+            return profiles.replace(profile.getUserId(), profile) != null;
+        }
+    }
+}
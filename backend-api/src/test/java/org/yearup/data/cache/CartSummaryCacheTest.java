@@ -0,0 +1,241 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.models.CartDelta;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartSummaryCacheTest
+{
+    private static final int USER_ID = 1;
+    private static final int SMARTPHONE_ID = 1;
+    private static final int JEANS_ID = 2;
+
+    private InMemoryShoppingCartDao database;
+    private CartSummaryCache cache;
+
+    @BeforeEach
+    public void setup()
+    {
+        database = new InMemoryShoppingCartDao();
+        database.prices.put(SMARTPHONE_ID, new BigDecimal("499.99"));
+        database.prices.put(JEANS_ID, new BigDecimal("39.99"));
+
+        cache = new CartSummaryCache(database, 100, 300);
+    }
+
+    @Test
+    public void delta_shouldAddTheNewLineToTheTotal()
+    {
+        // arrange
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        cache.load(USER_ID);
+        database.addProduct(USER_ID, JEANS_ID, 2);
+
+        // act
+        CartDelta delta = cache.delta(USER_ID, JEANS_ID);
+
+        // assert
+        assertEquals(2, delta.getItem().getQuantity());
+        assertEquals(new BigDecimal("579.97"), delta.getTotal(), "Because 499.99 + 2 x 39.99 = 579.97.");
+        assertEquals(1, database.fullReads, "Because a change to a loaded cart only reads the one line.");
+    }
+
+    @Test
+    public void delta_shouldReplaceTheOldLine_whenTheQuantityChanges()
+    {
+        // arrange
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        database.addProduct(USER_ID, JEANS_ID, 2);
+        cache.load(USER_ID);
+        database.updateProductQuantity(USER_ID, JEANS_ID, 5);
+
+        // act
+        CartDelta delta = cache.delta(USER_ID, JEANS_ID);
+
+        // assert
+        assertEquals(new BigDecimal("699.94"), delta.getTotal(), "Because 499.99 + 5 x 39.99 = 699.94.");
+    }
+
+    @Test
+    public void delta_shouldDropTheLine_whenTheQuantityIsZero()
+    {
+        // arrange
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        database.addProduct(USER_ID, JEANS_ID, 2);
+        cache.load(USER_ID);
+        database.updateProductQuantity(USER_ID, JEANS_ID, 0);
+
+        // act
+        CartDelta delta = cache.delta(USER_ID, JEANS_ID);
+
+        // assert
+        assertNull(delta.getItem(), "Because the jeans are no longer in the cart.");
+        assertEquals(new BigDecimal("499.99"), delta.getTotal());
+    }
+
+    @Test
+    public void delta_shouldLoadTheCartAgain_afterItWasCleared()
+    {
+        // arrange
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        cache.load(USER_ID);
+        database.clearCart(USER_ID);
+        cache.invalidate(USER_ID);
+        database.addProduct(USER_ID, JEANS_ID, 1);
+
+        // act
+        CartDelta delta = cache.delta(USER_ID, JEANS_ID);
+
+        // assert
+        assertEquals(new BigDecimal("39.99"), delta.getTotal(), "Because the smartphone went with the cleared cart.");
+        assertEquals(2, database.fullReads, "Because the first change after a clear loads the whole cart.");
+    }
+
+    @Test
+    public void delta_shouldRebuildTheSummary_afterItsMaxAge() throws Exception
+    {
+        // arrange
+        cache = new CartSummaryCache(database, 100, 1);
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        database.addProduct(USER_ID, JEANS_ID, 1);
+        cache.load(USER_ID);
+        // a price change on a line that isn't touched again only shows up once the summary is rebuilt
+        database.prices.put(SMARTPHONE_ID, new BigDecimal("399.99"));
+        Thread.sleep(1100);
+        database.updateProductQuantity(USER_ID, JEANS_ID, 2);
+
+        // act
+        CartDelta delta = cache.delta(USER_ID, JEANS_ID);
+
+        // assert
+        assertEquals(new BigDecimal("479.97"), delta.getTotal(), "Because the rebuilt summary has the new smartphone price.");
+        assertEquals(2, database.fullReads, "Because an expired summary is loaded again in full.");
+    }
+
+    @Test
+    public void delta_shouldNotPutBackAnOlderLine_whenAnotherChangeLandsWhileReading() throws Exception
+    {
+        // arrange
+        database.addProduct(USER_ID, SMARTPHONE_ID, 1);
+        database.addProduct(USER_ID, JEANS_ID, 1);
+        cache.load(USER_ID);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Future<CartDelta>> second = new ArrayList<>();
+        database.onGetItem = () -> {
+            // a second change for the same user that lands after the first one read its line
+            database.onGetItem = null;
+            second.add(executor.submit(() -> {
+                database.updateProductQuantity(USER_ID, JEANS_ID, 5);
+                return cache.delta(USER_ID, JEANS_ID);
+            }));
+            try
+            {
+                // it has to wait for the first change -- give it the chance to overtake it
+                second.get(0).get(200, TimeUnit.MILLISECONDS);
+            }
+            catch (Exception ignored)
+            {
+            }
+        };
+
+        // act
+        database.updateProductQuantity(USER_ID, JEANS_ID, 2);
+        CartDelta first = cache.delta(USER_ID, JEANS_ID);
+        CartDelta last = second.get(0).get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // assert
+        assertEquals(new BigDecimal("579.97"), first.getTotal(), "Because the first change saw 2 pairs of jeans.");
+        assertEquals(new BigDecimal("699.94"), last.getTotal(), "Because the second change saw 5 pairs of jeans.");
+        assertEquals(new BigDecimal("699.94"), cache.delta(USER_ID, SMARTPHONE_ID).getTotal(),
+                "Because the older line must not replace the newer one in the running total.");
+    }
+
+    // stands in for the shopping_cart table joined with products, and counts full cart reads
+    private static class InMemoryShoppingCartDao implements ShoppingCartDao
+    {
+        private final Map<Integer, BigDecimal> prices = new ConcurrentHashMap<>();
+        private final Map<Integer, Map<Integer, Integer>> carts = new ConcurrentHashMap<>();
+        private volatile int fullReads = 0;
+        // runs after a line is read but before it is returned -- lets a test land a change in between
+        private volatile Runnable onGetItem;
+
+        @Override
+        public ShoppingCart getByUserId(int userId)
+        {
+            fullReads++;
+            ShoppingCart cart = new ShoppingCart();
+            cartOf(userId).forEach((productId, quantity) -> cart.add(item(productId, quantity)));
+            return cart;
+        }
+
+        @Override
+        public ShoppingCartItem getItem(int userId, int productId)
+        {
+            Integer quantity = cartOf(userId).get(productId);
+            Runnable hook = onGetItem;
+            if (hook != null) hook.run();
+            return quantity == null ? null : item(productId, quantity);
+        }
+
+        @Override
+        public void addProduct(int userId, int productId, int quantity)
+        {
+            cartOf(userId).merge(productId, quantity, Integer::sum);
+        }
+
+        @Override
+        public void addProducts(int userId, Map<Integer, Integer> quantities)
+        {
+            quantities.forEach((productId, quantity) -> addProduct(userId, productId, quantity));
+        }
+
+        @Override
+        public void updateProductQuantity(int userId, int productId, int quantity)
+        {
+            if (quantity > 0)
+            {
+                cartOf(userId).put(productId, quantity);
+            }
+            else
+            {
+                cartOf(userId).remove(productId);
+            }
+        }
+
+        @Override
+        public void clearCart(int userId)
+        {
+            carts.remove(userId);
+        }
+
+        @Override
+        public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        private Map<Integer, Integer> cartOf(int userId)
+        {
+            return carts.computeIfAbsent(userId, id -> new ConcurrentHashMap<>());
+        }
+
+        private ShoppingCartItem item(int productId, int quantity)
+        {
+            ShoppingCartItem item = new ShoppingCartItem();
+            item.setProduct(new Product(productId, "Product " + productId, prices.get(productId), 1, "", "", 10, false, ""));
+            item.setQuantity(quantity);
+            return item;
+        }
+    }
+}
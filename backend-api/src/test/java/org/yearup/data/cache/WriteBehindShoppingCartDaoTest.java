@@ -0,0 +1,247 @@
+package org.yearup.data.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.yearup.data.ProductDao;
+import org.yearup.data.ShoppingCartDao;
+import org.yearup.events.CheckoutCompletedEvent;
+import org.yearup.models.Product;
+import org.yearup.models.ShoppingCart;
+import org.yearup.models.ShoppingCartItem;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WriteBehindShoppingCartDaoTest
+{
+    private static final int USER_ID = 1;
+
+    private InMemoryShoppingCartDao database;
+    private WriteBehindShoppingCartDao dao;
+    // products removed from the catalog -- the database rejects cart rows for them
+    private final Set<Integer> deletedProducts = new HashSet<>();
+
+    @BeforeEach
+    public void setup()
+    {
+        ProductDao productDao = mock(ProductDao.class);
+        when(productDao.getById(anyInt())).thenAnswer(call ->
+                deletedProducts.contains(call.<Integer>getArgument(0)) ? null : product(call.getArgument(0)));
+
+        database = new InMemoryShoppingCartDao(deletedProducts);
+        dao = new WriteBehindShoppingCartDao(database, productDao, 1800);
+    }
+
+    @Test
+    public void addProduct_shouldNotWriteUntilFlushed()
+    {
+        // act
+        dao.addProduct(USER_ID, 1, 1);
+        dao.addProduct(USER_ID, 1, 1);
+
+        // assert
+        assertEquals(2, dao.getByUserId(USER_ID).get(1).getQuantity());
+        assertTrue(database.carts.isEmpty(), "Because changes stay in memory until the next flush.");
+    }
+
+    @Test
+    public void flushAll_shouldCoalesceRepeatedChangesIntoOneWrite()
+    {
+        // arrange
+        for (int i = 0; i < 10; i++)
+        {
+            dao.addProduct(USER_ID, 1, 1);
+        }
+        dao.updateProductQuantity(USER_ID, 1, 4);
+        dao.addProduct(USER_ID, 2, 3);
+
+        // act
+        dao.flushAll();
+
+        // assert
+        assertEquals(1, database.saves, "Because every dirty cart goes out in a single batch.");
+        assertEquals(Map.of(1, 4, 2, 3), database.carts.get(USER_ID));
+    }
+
+    @Test
+    public void clearCart_shouldDeleteTheRowsOnFlush()
+    {
+        // arrange
+        database.carts.put(USER_ID, new HashMap<>(Map.of(1, 2, 2, 1)));
+
+        // act
+        dao.clearCart(USER_ID);
+        dao.flush(USER_ID);
+
+        // assert
+        assertTrue(dao.getByUserId(USER_ID).getItems().isEmpty());
+        assertTrue(database.carts.get(USER_ID).isEmpty(), "Because every line of the cleared cart should be deleted.");
+    }
+
+    @Test
+    public void flushAll_shouldRetry_whenTheWriteFails()
+    {
+        // arrange
+        dao.addProduct(USER_ID, 1, 2);
+        database.failNextSave = true;
+
+        // act
+        dao.flushAll();
+        dao.flushAll();
+
+        // assert
+        assertEquals(Map.of(1, 2), database.carts.get(USER_ID), "Because lines from a failed flush are queued again.");
+    }
+
+    @Test
+    public void flushAll_shouldDropDeletedProducts_andStillWriteTheOtherCarts()
+    {
+        // arrange
+        dao.addProduct(USER_ID, 1, 1);
+        dao.addProduct(USER_ID, 99, 1);
+        dao.addProduct(2, 1, 5);
+        deletedProducts.add(99);
+
+        // act
+        dao.flushAll();
+        dao.flushAll();
+
+        // assert
+        assertEquals(Map.of(1, 1), database.carts.get(USER_ID), "Because the line for the deleted product can never be written.");
+        assertEquals(Map.of(1, 5), database.carts.get(2), "Because one bad cart must not hold back the others.");
+        assertNull(dao.getItem(USER_ID, 99), "Because the deleted product is dropped from the cart in memory too.");
+    }
+
+    @Test
+    public void checkoutCompleted_shouldOnlyKeepWhatWasAddedAfterTheFlush()
+    {
+        // arrange
+        database.carts.put(USER_ID, new HashMap<>(Map.of(1, 2)));
+        dao.getByUserId(USER_ID);
+        dao.prepareCheckout(USER_ID);
+        // lands after the flush but before checkout commits -- checkout buys the 2 the database holds
+        dao.addProduct(USER_ID, 1, 1);
+        dao.flushAll();
+        database.carts.remove(USER_ID);
+
+        // act
+        dao.onCheckoutCompleted(new CheckoutCompletedEvent(USER_ID, 1, List.of(1)));
+        dao.checkoutFinished(USER_ID);
+        dao.flushAll();
+
+        // assert
+        assertEquals(Map.of(1, 1), database.carts.get(USER_ID), "Because only the 1 added during checkout was not bought.");
+        assertEquals(1, dao.getByUserId(USER_ID).get(1).getQuantity());
+    }
+
+    @Test
+    public void flushAll_shouldNotWriteACart_whileItIsBeingCheckedOut()
+    {
+        // arrange
+        dao.prepareCheckout(USER_ID);
+        dao.addProduct(USER_ID, 1, 1);
+
+        // act
+        dao.flushAll();
+
+        // assert
+        assertTrue(database.carts.isEmpty(), "Because a write could land under the checkout that is reading the rows.");
+
+        dao.checkoutFinished(USER_ID);
+        dao.flushAll();
+        assertEquals(Map.of(1, 1), database.carts.get(USER_ID), "Because the cart is written once checkout is done with it.");
+    }
+
+    private static Product product(int id)
+    {
+        return new Product(id, "Product " + id, new BigDecimal("10.00"), 1, "", "", 10, false, "");
+    }
+
+    // stands in for MySqlShoppingCartDao and counts batch writes
+    private static class InMemoryShoppingCartDao implements ShoppingCartDao
+    {
+        private final Map<Integer, Map<Integer, Integer>> carts = new HashMap<>();
+        private final Set<Integer> deletedProducts;
+        private int saves = 0;
+        private boolean failNextSave = false;
+
+        private InMemoryShoppingCartDao(Set<Integer> deletedProducts)
+        {
+            this.deletedProducts = deletedProducts;
+        }
+
+        @Override
+        public ShoppingCart getByUserId(int userId)
+        {
+            ShoppingCart cart = new ShoppingCart();
+            carts.getOrDefault(userId, Map.of()).forEach((productId, quantity) -> {
+                ShoppingCartItem item = new ShoppingCartItem();
+                item.setProduct(product(productId));
+                item.setQuantity(quantity);
+                cart.add(item);
+            });
+            return cart;
+        }
+
+        @Override
+        public ShoppingCartItem getItem(int userId, int productId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addProduct(int userId, int productId, int quantity)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void addProducts(int userId, Map<Integer, Integer> quantities)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateProductQuantity(int userId, int productId, int quantity)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clearCart(int userId)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void saveQuantities(Map<Integer, Map<Integer, Integer>> quantitiesByUser)
+        {
+            if (failNextSave)
+            {
+                failNextSave = false;
+                throw new RuntimeException("database is down");
+            }
+            // the whole batch rolls back, like a foreign key error in the MySQL transaction
+            quantitiesByUser.values().forEach(lines -> lines.forEach((productId, quantity) -> {
+                if (quantity > 0 && deletedProducts.contains(productId))
+                {
+                    throw new RuntimeException("product " + productId + " does not exist");
+                }
+            }));
+
+            saves++;
+            quantitiesByUser.forEach((userId, lines) -> {
+                Map<Integer, Integer> cart = carts.computeIfAbsent(userId, k -> new HashMap<>());
+                lines.forEach((productId, quantity) -> {
+                    if (quantity > 0) cart.put(productId, quantity);
+                    else cart.remove(productId);
+                });
+            });
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.yearup.data.mysql;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+import org.yearup.data.InsufficientStockException;
+import org.yearup.models.Order;
+import org.yearup.models.ShoppingCart;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MySqlCheckoutDaoTest extends BaseDaoTestClass
+{
+    private static final int USER_ID = 1;
+    // stock 50 and 30 in test-data.sql
+    private static final int SMARTPHONE_ID = 1;
+    private static final int LAPTOP_ID = 2;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    // checkout commits on its own connection, so it needs a real pool like MySqlShoppingCartDaoTest
+    private BasicDataSource pool;
+    private MySqlCheckoutDao dao;
+    private MySqlShoppingCartDao shoppingCartDao;
+    private MySqlProductDao productDao;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(String.format("%s/%s", serverUrl, testDb));
+        pool.setUsername(username);
+        pool.setPassword(password);
+
+        dao = new MySqlCheckoutDao(pool, new SimpleMeterRegistry());
+        shoppingCartDao = new MySqlShoppingCartDao(pool);
+        productDao = new MySqlProductDao(pool);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception
+    {
+        // a checkout commits, so put the stock back and remove its order
+        try (Connection connection = pool.getConnection())
+        {
+            execute(connection, "DELETE FROM order_line_items WHERE order_id IN (SELECT order_id FROM orders WHERE user_id = " + USER_ID + ")");
+            execute(connection, "DELETE FROM orders WHERE user_id = " + USER_ID);
+            execute(connection, "UPDATE products SET stock = 50 WHERE product_id = " + SMARTPHONE_ID);
+            execute(connection, "UPDATE products SET stock = 30 WHERE product_id = " + LAPTOP_ID);
+        }
+        shoppingCartDao.clearCart(USER_ID);
+        pool.close();
+    }
+
+    @Test
+    public void checkout_shouldCreateTheOrder_reserveTheStock_andEmptyTheCart() throws Exception
+    {
+        // arrange
+        shoppingCartDao.addProduct(USER_ID, SMARTPHONE_ID, 2);
+        shoppingCartDao.addProduct(USER_ID, LAPTOP_ID, 1);
+        Order order = order();
+
+        // act
+        ShoppingCart cart = dao.checkout(order);
+
+        // assert
+        assertEquals(2, cart.getItems().size(), "Because both cart lines were bought.");
+        assertTrue(order.getOrderId() > 0, "Because the new order id is set on the order.");
+        assertEquals(new BigDecimal("1899.97"), order.getShippingAmount(), "Because 2 x 499.99 + 899.99 = 1899.97.");
+        assertEquals(2, countLineItems(order.getOrderId()));
+        assertEquals(48, productDao.getById(SMARTPHONE_ID).getStock());
+        assertEquals(29, productDao.getById(LAPTOP_ID).getStock());
+        assertTrue(shoppingCartDao.getByUserId(USER_ID).getItems().isEmpty(), "Because checkout empties the cart.");
+    }
+
+    @Test
+    public void checkout_shouldWriteNothing_whenTheCartIsEmpty() throws Exception
+    {
+        // arrange
+        Order order = order();
+
+        // act
+        ShoppingCart cart = dao.checkout(order);
+
+        // assert
+        assertTrue(cart.getItems().isEmpty());
+        assertEquals(0, order.getOrderId(), "Because no order is created for an empty cart.");
+        assertEquals(0, countOrders(), "Because no order is created for an empty cart.");
+    }
+
+    @Test
+    public void checkout_shouldRollBackEverything_whenAProductIsShort() throws Exception
+    {
+        // arrange
+        shoppingCartDao.addProduct(USER_ID, SMARTPHONE_ID, 2);
+        shoppingCartDao.addProduct(USER_ID, LAPTOP_ID, 31);
+
+        // act
+        InsufficientStockException e = assertThrows(InsufficientStockException.class, () -> dao.checkout(order()));
+
+        // assert
+        assertEquals(List.of(LAPTOP_ID), e.getProductIds(), "Because only 30 laptops are in stock.");
+        assertEquals(0, countOrders(), "Because a failed checkout leaves no order behind.");
+        assertEquals(50, productDao.getById(SMARTPHONE_ID).getStock(), "Because the smartphones reserved first are put back.");
+        assertEquals(2, shoppingCartDao.getByUserId(USER_ID).getItems().size(), "Because the cart is left as it was.");
+    }
+
+    private static Order order()
+    {
+        Order order = new Order();
+        order.setUserId(USER_ID);
+        order.setDate(LocalDateTime.now());
+        order.setAddress("");
+        order.setCity("");
+        order.setState("");
+        order.setZip("");
+        return order;
+    }
+
+    private int countOrders() throws SQLException
+    {
+        return count("SELECT COUNT(*) FROM orders WHERE user_id = ?", USER_ID);
+    }
+
+    private int countLineItems(int orderId) throws SQLException
+    {
+        return count("SELECT COUNT(*) FROM order_line_items WHERE order_id = ?", orderId);
+    }
+
+    private int count(String sql, int id) throws SQLException
+    {
+        try (Connection connection = pool.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.setInt(1, id);
+            try (ResultSet row = statement.executeQuery())
+            {
+                row.next();
+                return row.getInt(1);
+            }
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException
+    {
+        try (PreparedStatement statement = connection.prepareStatement(sql))
+        {
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.yearup.data.mysql;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MySqlShoppingCartDaoTest extends BaseDaoTestClass
+{
+    private static final int USER_ID = 1;
+    private static final int PRODUCT_ID = 1;
+
+    @Value("${datasource.url}")
+    private String serverUrl;
+    @Value("${datasource.testdb}")
+    private String testDb;
+    @Value("${datasource.username}")
+    private String username;
+    @Value("${datasource.password}")
+    private String password;
+
+    // the shared test connection can only run one statement at a time
+    // concurrent adds need a real pool with autocommit on
+    private BasicDataSource pool;
+    private MySqlShoppingCartDao dao;
+
+    @BeforeEach
+    public void setup()
+    {
+        pool = new BasicDataSource();
+        pool.setUrl(String.format("%s/%s", serverUrl, testDb));
+        pool.setUsername(username);
+        pool.setPassword(password);
+        pool.setMaxTotal(16);
+
+        dao = new MySqlShoppingCartDao(pool);
+    }
+
+    @AfterEach
+    public void cleanup() throws Exception
+    {
+        // these adds were committed, so they are not covered by the rollback
+        dao.clearCart(USER_ID);
+        pool.close();
+    }
+
+    @Test
+    public void addProduct_shouldAddTheRequestedQuantity()
+    {
+        // act
+        dao.addProduct(USER_ID, PRODUCT_ID, 3);
+        dao.addProduct(USER_ID, PRODUCT_ID, 2);
+
+        // assert
+        int quantity = dao.getByUserId(USER_ID).get(PRODUCT_ID).getQuantity();
+        assertEquals(5, quantity, "Because the first add inserts 3 and the second adds 2 more.");
+    }
+
+    @Test
+    public void addProduct_shouldNotLoseAnyAdds_whenCalledConcurrently() throws Exception
+    {
+        // arrange
+        int threads = 16;
+        int addsPerThread = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+
+        // act
+        for (int i = 0; i < threads; i++)
+        {
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < addsPerThread; j++)
+                {
+                    dao.addProduct(USER_ID, PRODUCT_ID, 1);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+
+        for (Future<?> result : results)
+        {
+            // rethrows a duplicate key error or any other failure from the worker
+            result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // assert
+        int quantity = dao.getByUserId(USER_ID).get(PRODUCT_ID).getQuantity();
+        assertEquals(threads * addsPerThread, quantity, "Because every add should land exactly once, even when they race.");
+    }
+}
@@ -0,0 +1,90 @@
+package org.yearup.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ShoppingCartTest
+{
+    @Test
+    public void getTotal_shouldAddUpEveryLine()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+
+        // act
+        cart.add(item(1, "499.99", 2));
+        cart.add(item(2, "39.99", 3));
+
+        // assert
+        assertEquals(new BigDecimal("1119.95"), cart.getTotal(), "Because 2 x 499.99 + 3 x 39.99 = 1119.95.");
+    }
+
+    @Test
+    public void getTotal_shouldBePlainZero_forAnEmptyCart()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+
+        // act
+        BigDecimal total = cart.getTotal();
+
+        // assert
+        assertEquals(BigDecimal.ZERO, total, "Because an empty cart has always been sent as \"total\": 0, not 0.00.");
+    }
+
+    @Test
+    public void getTotal_shouldFollowQuantityChanges()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        ShoppingCartItem smartphone = item(1, "499.99", 1);
+        cart.add(smartphone);
+        cart.add(item(2, "39.99", 1));
+
+        // act
+        smartphone.setQuantity(3);
+
+        // assert
+        assertEquals(new BigDecimal("1539.96"), cart.getTotal(), "Because the running total should see the new quantity.");
+    }
+
+    @Test
+    public void add_shouldReplaceTheLine_whenTheProductIsAlreadyInTheCart()
+    {
+        // arrange
+        ShoppingCart cart = new ShoppingCart();
+        ShoppingCartItem first = item(1, "10.00", 5);
+        cart.add(first);
+
+        // act
+        cart.add(item(1, "10.00", 2));
+        first.setQuantity(100);
+
+        // assert
+        assertEquals(new BigDecimal("20.00"), cart.getTotal(), "Because the replaced line no longer counts towards the total.");
+    }
+
+    @Test
+    public void getLineTotal_shouldRoundTheDiscountToTheNearestCent()
+    {
+        // arrange
+        ShoppingCartItem item = item(1, "9.99", 1);
+
+        // act
+        item.setDiscountPercent(new BigDecimal("0.15"));
+
+        // assert
+        assertEquals(new BigDecimal("8.49"), item.getLineTotal(), "Because 15% of 9.99 is 1.4985, which rounds to 1.50.");
+    }
+
+    private static ShoppingCartItem item(int productId, String price, int quantity)
+    {
+        ShoppingCartItem item = new ShoppingCartItem();
+        item.setProduct(new Product(productId, "Product " + productId, new BigDecimal(price), 1, "", "", 10, false, ""));
+        item.setQuantity(quantity);
+        return item;
+    }
+}
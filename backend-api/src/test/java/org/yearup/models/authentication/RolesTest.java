@@ -0,0 +1,46 @@
+package org.yearup.models.authentication;
+
+import org.junit.jupiter.api.Test;
+import org.yearup.models.User;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolesTest
+{
+    @Test
+    public void of_shouldShareOneSetPerCombinationOfRoles()
+    {
+        // arrange
+        User fromDatabase = new User(1, "george", "", "ADMIN,USER");
+
+        // act
+        Set<Authority> fromClaim = Roles.of("ROLE_ADMIN,ROLE_USER");
+        Set<Authority> reordered = Roles.of("ROLE_USER,ROLE_ADMIN");
+
+        // assert
+        assertSame(fromClaim, reordered, "Because the same roles in another order are the same set.");
+        assertSame(fromClaim, fromDatabase.getAuthorities(), "Because mapped users share the set with tokens.");
+        assertEquals(List.of("ROLE_ADMIN", "ROLE_USER"), fromClaim.stream().map(Authority::getName).toList());
+        assertSame(Roles.grantedAuthorities("ROLE_USER,ROLE_ADMIN"), Roles.grantedAuthorities(fromDatabase.getAuthorities()),
+                "Because the logged in principal and token principals share the Spring Security view too.");
+    }
+
+    @Test
+    public void addRole_shouldNotChangeTheSharedSet()
+    {
+        // arrange
+        User user = new User(1, "george", "", "USER");
+        Set<Authority> shared = Roles.of("ROLE_USER");
+
+        // act
+        user.addRole("ADMIN");
+
+        // assert
+        assertEquals(Set.of(new Authority("ROLE_USER")), shared, "Because other users still hold the shared set.");
+        assertEquals("ROLE_ADMIN,ROLE_USER", Roles.claim(Roles.grantedAuthorities(user.getAuthorities())));
+        assertThrows(UnsupportedOperationException.class, () -> shared.add(new Authority("ROLE_ADMIN")));
+    }
+}
@@ -0,0 +1,133 @@
+package org.yearup.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest
+{
+    private PasswordHasher hasher;
+
+    @BeforeEach
+    public void setup()
+    {
+        // the lowest cost bcrypt allows, so the test stays fast
+        hasher = new PasswordHasher(4, 1, 10);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        hasher.shutdown();
+    }
+
+    @Test
+    public void matches_shouldAcceptTheHashItMade()
+    {
+        // arrange
+        String hash = hasher.encode("password");
+
+        // act
+        boolean matches = hasher.matches("password", hash);
+
+        // assert
+        assertTrue(matches);
+        assertFalse(hasher.matches("wrong", hash), "Because a different password must not match.");
+    }
+
+    @Test
+    public void upgradeEncoding_shouldOnlyAskForARehash_whenTheCostChanged()
+    {
+        // arrange
+        String current = hasher.encode("password");
+        String older = new BCryptPasswordEncoder(5).encode("password");
+
+        // act
+        boolean upgradeCurrent = hasher.upgradeEncoding(current);
+        boolean upgradeOlder = hasher.upgradeEncoding(older);
+
+        // assert
+        assertFalse(upgradeCurrent, "Because the hash already uses the configured cost.");
+        assertTrue(upgradeOlder, "Because the hash was made with another cost.");
+    }
+
+    @Test
+    public void upgradeEncoding_shouldSkipTheRehash_whileHashesAreWaiting() throws Exception
+    {
+        // arrange
+        String older = new BCryptPasswordEncoder(5).encode("password");
+        String current = hasher.encode("password");
+        CountDownLatch release = new CountDownLatch(1);
+        // a password that holds the only hashing thread until it is released
+        CharSequence stuck = new BlockingPassword(release);
+        ExecutorService logins = Executors.newFixedThreadPool(2);
+        logins.submit(() -> hasher.matches(stuck, current));
+        logins.submit(() -> hasher.matches(stuck, current));
+        while (hasher.getQueueDepth() == 0)
+        {
+            Thread.sleep(10);
+        }
+
+        // act
+        boolean upgradeWhileBusy = hasher.upgradeEncoding(older);
+        release.countDown();
+        logins.shutdown();
+        logins.awaitTermination(10, TimeUnit.SECONDS);
+        boolean upgradeWhenIdle = hasher.upgradeEncoding(older);
+
+        // assert
+        assertFalse(upgradeWhileBusy, "Because a rejected rehash would fail a login whose password was right.");
+        assertTrue(upgradeWhenIdle, "Because the rehash only waits for the pool to have room again.");
+    }
+
+    // blocks whoever reads it until the latch is released
+    private static class BlockingPassword implements CharSequence
+    {
+        private final CountDownLatch release;
+
+        private BlockingPassword(CountDownLatch release)
+        {
+            this.release = release;
+        }
+
+        @Override
+        public String toString()
+        {
+            try
+            {
+                release.await(10, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            return "password";
+        }
+
+        @Override
+        public int length()
+        {
+            return toString().length();
+        }
+
+        @Override
+        public char charAt(int index)
+        {
+            return toString().charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            return toString().subSequence(start, end);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.yearup.security.jwt;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RevocationIndexTest
+{
+    @Test
+    public void isRevoked_shouldOnlyAnswerYesForRevokedSessions()
+    {
+        // arrange
+        RevocationIndex index = new RevocationIndex(100, 0.01);
+        long inAnHour = System.currentTimeMillis() + 3_600_000;
+        for (int i = 0; i < 50; i++)
+        {
+            index.revoke("revoked-" + i, inAnHour);
+        }
+
+        // act
+        int wronglyRevoked = 0;
+        for (int i = 0; i < 10_000; i++)
+        {
+            if (index.isRevoked("active-" + i)) wronglyRevoked++;
+        }
+
+        // assert
+        for (int i = 0; i < 50; i++)
+        {
+            assertTrue(index.isRevoked("revoked-" + i), "Because every revoked session must be found.");
+        }
+        assertEquals(0, wronglyRevoked, "Because a bloom filter false positive is settled by the exact set.");
+    }
+
+    @Test
+    public void evictExpired_shouldForgetSessionsWhoseTokensHaveExpired()
+    {
+        // arrange
+        RevocationIndex index = new RevocationIndex(100, 0.01);
+        index.revoke("expired", System.currentTimeMillis() - 1);
+        index.revoke("current", System.currentTimeMillis() + 3_600_000);
+
+        // act
+        int evicted = index.evictExpired();
+
+        // assert
+        assertEquals(1, evicted);
+        assertEquals(1, index.size());
+        assertFalse(index.isRevoked("expired"), "Because its tokens can't be used anymore anyway.");
+        assertTrue(index.isRevoked("current"), "Because the rebuilt filter must still hold the current revocations.");
+    }
+}
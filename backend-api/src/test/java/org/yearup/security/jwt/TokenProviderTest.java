@@ -0,0 +1,125 @@
+package org.yearup.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.yearup.security.AuthenticatedUser;
+import org.yearup.security.SecurityUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenProviderTest
+{
+    private static final String SECRET = "q8iMBSth1xu3cC+YWZPd/4XyelVYi2Bo3qr4dC1ugJL+bShsS6NTviJMdgC3rwIE7pRmxQIFzWpQW1Yb5XGWcZ1vpxs5afVogHNDZhyi5gOj8FsdRZnNLJz7P3PjGMi8whO0l9vnHRAKv5ZSoBQ7bw9KNUw7yoFGXuoGUEa9HsU=";
+
+    private TokenProvider tokenProvider;
+
+    @BeforeEach
+    public void setup()
+    {
+        tokenProvider = new TokenProvider(SECRET, 3600, 100);
+        tokenProvider.afterPropertiesSet();
+    }
+
+    @Test
+    public void authenticate_shouldRestoreTheUserAndRoles()
+    {
+        // arrange
+        String token = tokenProvider.createToken(login(7, "george", "ROLE_USER"), false);
+
+        // act
+        Authentication authentication = tokenProvider.authenticate(token);
+
+        // assert
+        assertEquals("george", authentication.getName());
+        assertEquals(7, SecurityUtils.getUserId(authentication).orElseThrow(), "Because the user id travels in the token.");
+        assertEquals(List.of(new SimpleGrantedAuthority("ROLE_USER")), List.copyOf(authentication.getAuthorities()));
+    }
+
+    @Test
+    public void authenticate_shouldReuseTheVerifiedToken()
+    {
+        // arrange
+        String token = tokenProvider.createToken(login(7, "george", "ROLE_USER"), false);
+
+        // act
+        Authentication first = tokenProvider.authenticate(token);
+        Authentication second = tokenProvider.authenticate(token);
+
+        // assert
+        assertSame(first.getPrincipal(), second.getPrincipal(), "Because a token that was already verified should come from the cache.");
+        assertNotSame(first, second, "Because each request may change the Authentication it is handed.");
+    }
+
+    @Test
+    public void authenticate_shouldRejectATamperedToken()
+    {
+        // arrange
+        String token = tokenProvider.createToken(login(7, "george", "ROLE_USER"), false);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+
+        // act
+        Authentication authentication = tokenProvider.authenticate(tampered);
+
+        // assert
+        assertNull(authentication, "Because the signature no longer matches.");
+    }
+
+    @Test
+    public void authenticate_shouldRejectARefreshToken()
+    {
+        // arrange
+        TokenProvider.Tokens tokens = tokenProvider.createTokens(login(7, "george", "ROLE_USER"));
+
+        // act
+        Authentication authentication = tokenProvider.authenticate(tokens.refreshToken());
+
+        // assert
+        assertNull(authentication, "Because a refresh token is only good for new access tokens.");
+    }
+
+    @Test
+    public void refresh_shouldIssueAnAccessTokenForTheSameSession()
+    {
+        // arrange
+        TokenProvider.Tokens tokens = tokenProvider.createTokens(login(7, "george", "ROLE_USER"));
+
+        // act
+        String accessToken = tokenProvider.refresh(tokens.refreshToken());
+
+        // assert
+        assertEquals("george", tokenProvider.authenticate(accessToken).getName());
+        assertEquals(tokenProvider.getSessionId(tokens.refreshToken()), tokenProvider.getSessionId(accessToken),
+                "Because revoking the session has to revoke the new access token too.");
+        assertNull(tokenProvider.refresh(tokens.accessToken()), "Because an access token can't be used to refresh.");
+    }
+
+    @Test
+    public void authenticate_shouldRejectACachedTokenOnceItsSessionIsRevoked()
+    {
+        // arrange
+        RevocationIndex revocationIndex = new RevocationIndex(100, 0.01);
+        tokenProvider = new TokenProvider(SECRET, 3600, 7200, 100, revocationIndex);
+        tokenProvider.afterPropertiesSet();
+        TokenProvider.Tokens tokens = tokenProvider.createTokens(login(7, "george", "ROLE_USER"));
+        assertNotNull(tokenProvider.authenticate(tokens.accessToken()));
+
+        // act
+        revocationIndex.revoke(tokenProvider.getSessionId(tokens.refreshToken()), System.currentTimeMillis() + 10_000);
+
+        // assert
+        assertNull(tokenProvider.authenticate(tokens.accessToken()), "Because a revoked session ends every token in it.");
+        assertNull(tokenProvider.refresh(tokens.refreshToken()), "Because a revoked session can't be refreshed.");
+    }
+
+    private static Authentication login(int id, String username, String role)
+    {
+        List<SimpleGrantedAuthority> authorities = List.of(new SimpleGrantedAuthority(role));
+        AuthenticatedUser user = new AuthenticatedUser(id, username, "", authorities);
+        return new UsernamePasswordAuthenticationToken(user, "", authorities);
+    }
+}
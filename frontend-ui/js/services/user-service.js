@@ -7,6 +7,35 @@ class UserService {
     constructor()
     {
         this.loadUser();
+        this.refreshOnUnauthorized();
+    }
+
+    // access tokens only last a few minutes -- when one is turned away, trade the refresh token
+    // for a new one and send the request again, once
+    refreshOnUnauthorized()
+    {
+        axios.interceptors.response.use(response => response, error => {
+            const request = error.config;
+            const refreshUrl = `${config.baseUrl}/token/refresh`;
+
+            if(!error.response || error.response.status !== 401 || !this.currentUser.refreshToken
+                || request.retried || request.url === refreshUrl)
+            {
+                return Promise.reject(error);
+            }
+
+            request.retried = true;
+            return axios.post(refreshUrl, { refreshToken: this.currentUser.refreshToken })
+                .then(response => {
+                    this.currentUser.token = response.data.token;
+                    localStorage.setItem('user', JSON.stringify(this.currentUser));
+                    axios.defaults.headers.common = {'Authorization': `Bearer ${this.currentUser.token}`}
+
+                    request.headers.Authorization = `Bearer ${this.currentUser.token}`;
+                    return axios(request);
+                })
+                .catch(() => Promise.reject(error));
+        });
     }
 
     getHeader()
@@ -24,6 +53,7 @@ class UserService {
     {
         this.currentUser = {
             token: user.token,
+            refreshToken: user.refreshToken,
             userId: user.user.id,
             username: user.user.username,
             role: user.user.authorities[0].name
@@ -133,6 +163,13 @@ class UserService {
 
     logout()
     {
+        // ends the session on the server too, so the tokens can't be used again
+        if(this.currentUser.refreshToken)
+        {
+            axios.post(`${config.baseUrl}/logout`, { refreshToken: this.currentUser.refreshToken })
+                 .catch(error => console.log(error));
+        }
+
         localStorage.removeItem('user');
         axios.defaults.headers.common = {'Authorization': `bearer ${this.currentUser.token}`}
         this.currentUser = {};